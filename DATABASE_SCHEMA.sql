@@ -1,3 +1,5 @@
+-- The application creates and upgrades this schema itself at startup
+-- (SchemaMigrator, recorded in schema_migrations); this file shows the result.
 CREATE TABLE users (
     id INT PRIMARY KEY AUTO_INCREMENT,
     username VARCHAR(50) NOT NULL UNIQUE,
@@ -21,6 +23,37 @@ CREATE TABLE patients (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
-CREATE INDEX idx_user_id ON patients(user_id);
-CREATE INDEX idx_visit_date ON patients(visit_date);
-CREATE INDEX idx_patient_name ON patients(name);
+-- Every patient query filters on user_id first, so each index leads with it
+-- (which also serves the foreign key). Trailing id keeps ties in page order.
+CREATE INDEX idx_patients_user_visit ON patients(user_id, visit_date, id);
+CREATE INDEX idx_patients_user_name ON patients(user_id, name, id);
+CREATE INDEX idx_patients_user_age ON patients(user_id, age, id);
+CREATE INDEX idx_patients_user_phone ON patients(user_id, phone);
+CREATE FULLTEXT INDEX ft_patients_text ON patients(name, symptoms, diagnosis);
+
+-- Daily visit counts per user, maintained with every patient write.
+-- dimension is 'total', 'gender', 'diagnosis' or 'age_band'.
+CREATE TABLE patient_daily_stats (
+    user_id INT NOT NULL,
+    stat_date DATE NOT NULL,
+    dimension VARCHAR(16) NOT NULL,
+    bucket VARCHAR(200) NOT NULL,
+    visits INT NOT NULL,
+    PRIMARY KEY (user_id, stat_date, dimension, bucket)
+);
+
+-- Keys of offline journal entries already applied, so a replay is skipped.
+CREATE TABLE patient_write_keys (
+    write_key CHAR(36) PRIMARY KEY,
+    patient_id INT NOT NULL,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Applied migrations, with a checksum of each one's statements.
+CREATE TABLE schema_migrations (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    checksum CHAR(64) NOT NULL,
+    duration_ms BIGINT NOT NULL,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,71 @@
+package healthcamp.bench;
+
+import healthcamp.analytics.AggregationEngine;
+import healthcamp.analytics.PatientSnapshot;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for one dashboard re-aggregation over a synthetic snapshot, with and
+ * without a selective filter.
+ * <p>
+ * {@code java -jar target/benchmarks.jar AggregationBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+    private static final String[] DIAGNOSES = {
+        "Common cold", "Hypertension", "Diabetes", "Malaria", "Typhoid", "Anemia",
+        "Gastritis", "Migraine", "Asthma", "Dermatitis", "Conjunctivitis", "Fever"
+    };
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private PatientSnapshot snapshot;
+    private AggregationEngine.Filter everything;
+    private AggregationEngine.Filter lastQuarterFemale;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate today = LocalDate.of(2025, 1, 1);
+        long firstDay = today.minusYears(3).toEpochDay();
+        PatientSnapshot.Builder builder = new PatientSnapshot.Builder();
+        for (int i = 0; i < rows; i++) {
+            builder.add(firstDay + random.nextInt(3 * 365), random.nextInt(90),
+                    GENDERS[random.nextInt(GENDERS.length)], DIAGNOSES[random.nextInt(DIAGNOSES.length)]);
+        }
+        snapshot = builder.build();
+        everything = AggregationEngine.Filter.all();
+        lastQuarterFemale = new AggregationEngine.Filter(today.minusMonths(3), today, "Female", null, 18, 65);
+    }
+
+    @Benchmark
+    public AggregationEngine.Result unfiltered() {
+        return AggregationEngine.aggregate(snapshot, everything);
+    }
+
+    @Benchmark
+    public AggregationEngine.Result filtered() {
+        return AggregationEngine.aggregate(snapshot, lastQuarterFemale);
+    }
+}
@@ -0,0 +1,102 @@
+package healthcamp.bench;
+
+import healthcamp.analytics.PatientColumnStore;
+import healthcamp.model.PatientRecord;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Retained heap of the same synthetic patients held as an
+ * {@code ArrayList<PatientRecord>} and as a {@link PatientColumnStore}.
+ * JMH measures time, not footprint, so this is a plain main: build one
+ * representation, force GC, and compare used heap before and after.
+ * <p>
+ * {@code java -cp target/benchmarks.jar healthcamp.bench.PatientMemoryBenchmark [rows]}
+ */
+public class PatientMemoryBenchmark {
+
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+    private static final String[] DIAGNOSES = {
+        "Common cold", "Hypertension", "Diabetes", "Malaria", "Typhoid", "Anemia",
+        "Gastritis", "Migraine", "Asthma", "Dermatitis", "Conjunctivitis", "Fever"
+    };
+    private static final String[] TREATMENTS = {
+        "Paracetamol", "Rest and fluids", "Amlodipine", "Metformin", "ORS", "Iron supplements",
+        "Antacids", "Referred to district hospital", "Inhaler", "Topical cream"
+    };
+    private static final String[] SYMPTOMS = {
+        "Fever", "Cough", "Headache", "Body ache", "Fatigue", "Dizziness", "Stomach pain", "Rash"
+    };
+    private static final String[] NAMES = {
+        "Aarav", "Diya", "Ishaan", "Meera", "Kabir", "Ananya", "Rohan", "Priya", "Vivaan", "Sara"
+    };
+
+    private static Object retained;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.printf("%,d patients%n", rows);
+
+        long list = measure(() -> {
+            List<PatientRecord> patients = new ArrayList<>();
+            generate(rows, patients::add);
+            return patients;
+        });
+        long columns = measure(() -> {
+            PatientColumnStore.Builder builder = new PatientColumnStore.Builder();
+            generate(rows, builder::add);
+            return builder.build();
+        });
+
+        System.out.printf("ArrayList<PatientRecord> %,12d bytes  %6.1f bytes/row%n", list, (double) list / rows);
+        System.out.printf("PatientColumnStore       %,12d bytes  %6.1f bytes/row%n", columns, (double) columns / rows);
+        System.out.printf("saved %.0f%%%n", 100.0 * (list - columns) / list);
+    }
+
+    private static long measure(Supplier<Object> build) {
+        retained = null;
+        long before = usedAfterGc();
+        retained = build.get();
+        long after = usedAfterGc();
+        retained = null;
+        return after - before;
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    /**
+     * Strings are built per row, as a JDBC driver would return them, so the
+     * list pays for every duplicate the way it does in the application.
+     */
+    private static void generate(int rows, Consumer<PatientRecord> sink) {
+        SplittableRandom random = new SplittableRandom(42);
+        long firstDay = LocalDate.of(2022, 1, 1).toEpochDay();
+        for (int i = 0; i < rows; i++) {
+            PatientRecord patient = new PatientRecord(
+                NAMES[random.nextInt(NAMES.length)] + " " + (char) ('A' + random.nextInt(26)) + ".",
+                random.nextInt(90),
+                new String(GENDERS[random.nextInt(GENDERS.length)]),
+                String.valueOf(9_000_000_000L + random.nextInt(1_000_000_000)),
+                new String(SYMPTOMS[random.nextInt(SYMPTOMS.length)]),
+                new String(DIAGNOSES[random.nextInt(DIAGNOSES.length)]),
+                new String(TREATMENTS[random.nextInt(TREATMENTS.length)]),
+                LocalDate.ofEpochDay(firstDay + random.nextInt(3 * 365)));
+            patient.setId(i + 1);
+            sink.accept(patient);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import healthcamp.model.User;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PatientDAO} and {@link UserDAO} calls against an in-memory H2
+ * database in MySQL mode, seeded per fork with {@code rows} synthetic
+ * patients for one user. Each benchmark reports throughput and sampled
+ * latency with percentiles; keep the results of a release to compare the
+ * next one with. H2 is not MySQL, so compare runs with each other rather
+ * than with production timings.
+ * <p>
+ * In this package rather than {@code healthcamp.bench} so it can time the
+ * row mapping on its own. The insert benchmarks grow the table as they run.
+ * <p>
+ * {@code java -jar target/benchmarks.jar PatientDAOBenchmark -p rows=10000}
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Xmx2g",
+    "-Dhealthcamp.profile=embedded",
+    "-Dhealthcamp.profiles.embedded.db.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+@State(Scope.Benchmark)
+public class PatientDAOBenchmark {
+
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Priya", "Rahul", "Ananya", "Vikram", "Sneha", "Arjun", "Kavya", "Rohan", "Meera",
+        "Karan", "Divya", "Sanjay", "Pooja", "Amit", "Neha", "Ravi", "Isha", "Suresh", "Lakshmi"
+    };
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+    private static final String[] DIAGNOSES = {
+        "Common cold", "Hypertension", "Diabetes", "Malaria", "Typhoid", "Anemia",
+        "Gastritis", "Migraine", "Asthma", "Dermatitis", "Conjunctivitis", "Fever"
+    };
+    private static final String[] SYMPTOMS = {
+        "headache and fatigue", "persistent cough", "high fever with chills", "joint pain",
+        "skin rash", "abdominal pain", "shortness of breath", "dizziness"
+    };
+    /** One row in this many gets the rare name, so the selective search finds a handful. */
+    private static final int RARE_EVERY = 5_000;
+    private static final String RARE_NAME = "Zephyrine";
+    private static final int BATCH = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final SplittableRandom random = new SplittableRandom(7);
+    private int userId;
+    private PatientWritePipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        DatabaseManager.initializeDatabase();
+        userDAO.createUser(new User("bench", "bench@example.com", "not-a-real-hash"));
+        userId = userDAO.findByUsernameOrEmail("bench").getId();
+
+        LocalDate today = LocalDate.now();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("""
+                 INSERT INTO patients (user_id, name, age, gender, phone, symptoms, diagnosis, treatment, visit_date)
+                 VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+             """)) {
+            conn.setAutoCommit(false);
+            SplittableRandom seedRandom = new SplittableRandom(42);
+            for (int i = 0; i < rows; i++) {
+                PatientRecord patient = patient(seedRandom, i);
+                // about one visit in a hundred is today's
+                patient.setVisitDate(seedRandom.nextInt(100) == 0 ? today : today.minusDays(1 + seedRandom.nextInt(1095)));
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, patient.getName());
+                pstmt.setInt(3, patient.getAge());
+                pstmt.setString(4, patient.getGender());
+                pstmt.setString(5, patient.getPhone());
+                pstmt.setString(6, patient.getSymptoms());
+                pstmt.setString(7, patient.getDiagnosis());
+                pstmt.setString(8, patient.getTreatment());
+                pstmt.setDate(9, Date.valueOf(patient.getVisitDate()));
+                pstmt.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    pstmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        }
+        new PatientStatsDAO().rebuild(userId);
+        pipeline = new PatientWritePipeline(BATCH * 4, BATCH, 1, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        pipeline.close();
+        DatabaseManager.shutdown();
+    }
+
+    private static PatientRecord patient(SplittableRandom random, int i) {
+        String name = i % RARE_EVERY == 0 ? RARE_NAME + " " + i
+                : FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + (char) ('A' + random.nextInt(26)) + ".";
+        PatientRecord patient = new PatientRecord(name, 1 + random.nextInt(89),
+                GENDERS[random.nextInt(GENDERS.length)], String.valueOf(9_000_000_000L + random.nextInt(1_000_000_000)),
+                SYMPTOMS[random.nextInt(SYMPTOMS.length)], DIAGNOSES[random.nextInt(DIAGNOSES.length)],
+                "Rest and fluids", null);
+        patient.setVisitDate(LocalDate.now());
+        return patient;
+    }
+
+    /** Keywords from highly selective to none, mapped onto the three query shapes of {@code searchPatients}. */
+    @State(Scope.Benchmark)
+    public static class Search {
+        @Param({"rare", "common", "phone", "miss"})
+        public String selectivity;
+
+        String keyword;
+
+        @Setup
+        public void choose() {
+            keyword = switch (selectivity) {
+                case "rare" -> RARE_NAME;
+                case "common" -> "Malaria";
+                case "phone" -> "91234";
+                default -> "no such patient";
+            };
+        }
+    }
+
+    /** A scrollable result over real rows, so the mapping is timed without the query. */
+    @State(Scope.Thread)
+    public static class Mapping {
+        private static final int WINDOW = 1000;
+
+        Connection conn;
+        Statement stmt;
+        ResultSet rs;
+        int row;
+
+        @Setup
+        public void open(PatientDAOBenchmark dataset) throws SQLException {
+            conn = DatabaseManager.getConnection();
+            stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+            rs = stmt.executeQuery("SELECT * FROM patients WHERE user_id = " + dataset.userId + " LIMIT " + WINDOW);
+        }
+
+        void next() throws SQLException {
+            if (!rs.absolute(++row)) {
+                row = 1;
+                rs.absolute(row);
+            }
+        }
+
+        @TearDown
+        public void close() throws SQLException {
+            rs.close();
+            stmt.close();
+            conn.close();
+        }
+    }
+
+    @Benchmark
+    public PatientRecord addPatient() {
+        return patientDAO.addPatient(patient(random, 1), userId);
+    }
+
+    /** {@value #BATCH} inserts through the group-commit pipeline; the score is per insert. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<PatientRecord> addPatientBatched() {
+        List<CompletableFuture<PatientRecord>> futures = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            futures.add(pipeline.submit(userId, patient(random, 1)));
+        }
+        List<PatientRecord> saved = new ArrayList<>(BATCH);
+        for (CompletableFuture<PatientRecord> future : futures) {
+            saved.add(future.join());
+        }
+        return saved;
+    }
+
+    @Benchmark
+    public List<PatientRecord> getAllPatients() {
+        return patientDAO.getAllPatients(userId);
+    }
+
+    @Benchmark
+    public List<PatientRecord> searchPatients(Search search) {
+        return patientDAO.searchPatients(search.keyword, userId);
+    }
+
+    @Benchmark
+    public int getTodayPatientCount() {
+        return patientDAO.getTodayPatientCount(userId);
+    }
+
+    /** Served from {@link UserCache} after the first call, as logins mostly are. */
+    @Benchmark
+    public User findByUsernameOrEmailCached() {
+        return userDAO.findByUsernameOrEmail("bench@example.com");
+    }
+
+    @Benchmark
+    public User findByUsernameOrEmailUncached() {
+        UserDAO.getCache().clear();
+        return userDAO.findByUsernameOrEmail("bench@example.com");
+    }
+
+    @Benchmark
+    public PatientRecord extractPatientFromResultSet(Mapping mapping) throws SQLException {
+        mapping.next();
+        return patientDAO.extractPatientFromResultSet(mapping.rs);
+    }
+}
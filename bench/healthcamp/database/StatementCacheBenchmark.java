@@ -0,0 +1,100 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import healthcamp.model.User;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The hot DAO calls with the pool's {@link StatementCache} off
+ * ({@code statementCacheSize=0}) and on. The table is kept small and the
+ * search selective so preparing the statement is a visible share of each
+ * call; the difference between the two runs is the parse and plan work the
+ * cache saves. H2 already keeps a few parsed commands per session, so the
+ * gap is small in memory. Against MySQL every prepare is a round trip to
+ * the server, so run it there too, on a scratch database:
+ * <pre>
+ * java -jar target/benchmarks.jar StatementCacheBenchmark
+ * java -jar target/benchmarks.jar StatementCacheBenchmark -jvmArgsAppend "-Dhealthcamp.profile=mysql"
+ * </pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Xmx1g",
+    "-Dhealthcamp.profile=embedded",
+    "-Dhealthcamp.profiles.embedded.db.url=jdbc:h2:mem:stmtbench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+    "-Dhealthcamp.slowQuery.enabled=false"
+})
+@State(Scope.Benchmark)
+public class StatementCacheBenchmark {
+
+    private static final int ROWS = 2_000;
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final SplittableRandom random = new SplittableRandom(7);
+    private int userId;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        System.setProperty("healthcamp.pool.statementCacheSize", String.valueOf(statementCacheSize));
+        DatabaseManager.configure(DatabaseConfig.load());
+        DatabaseManager.initializeDatabase();
+        userDAO.createUser(new User("bench", "bench@example.com", "not-a-real-hash"));
+        userId = userDAO.findByUsernameOrEmail("bench").getId();
+        for (int i = 0; i < ROWS; i++) {
+            patientDAO.addPatient(patient(i), userId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        System.out.println("Pool: " + DatabaseManager.getPoolStats());
+        DatabaseManager.shutdown();
+    }
+
+    private PatientRecord patient(int i) {
+        PatientRecord patient = new PatientRecord((i % 500 == 0 ? "Zephyrine " : "Patient ") + i,
+                1 + random.nextInt(89), "Female", String.valueOf(9_000_000_000L + random.nextInt(1_000_000_000)),
+                "fever", "Viral fever", "Rest and fluids", null);
+        patient.setVisitDate(LocalDate.now());
+        return patient;
+    }
+
+    @Benchmark
+    public PatientRecord addPatient() {
+        return patientDAO.addPatient(patient(1), userId);
+    }
+
+    @Benchmark
+    public List<PatientRecord> searchPatients() {
+        return patientDAO.searchPatients("Zephyrine", userId);
+    }
+
+    @Benchmark
+    public User findByUsernameOrEmailUncached() {
+        UserDAO.getCache().clear();
+        return userDAO.findByUsernameOrEmail("bench@example.com");
+    }
+}
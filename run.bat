@@ -26,7 +26,7 @@ if errorlevel 1 (
     echo Please check:
     echo 1. MySQL is running (check XAMPP or MySQL service)
     echo 2. Database 'healthcamp_db' exists
-    echo 3. Database connection settings in DatabaseManager.java
+    echo 3. Database connection settings in healthcamp.properties
     echo.
     pause
 ) else (
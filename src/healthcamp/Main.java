@@ -1,42 +1,130 @@
 package healthcamp;
 
 import healthcamp.database.DatabaseManager;
-import healthcamp.database.PatientDAO;
-import healthcamp.database.UserDAO;
+import healthcamp.database.OfflinePatientDAO;
+import healthcamp.database.PatientExporter;
+import healthcamp.database.PatientImporter;
+import healthcamp.database.PatientSort;
+import healthcamp.database.PatientWritePipeline;
+import healthcamp.metrics.MetricsServer;
 import healthcamp.model.PatientRecord;
 import healthcamp.model.User;
+import healthcamp.service.LatestRequest;
+import healthcamp.service.PatientService;
+import healthcamp.service.SearchSession;
+import healthcamp.service.ServiceExecutors;
+import healthcamp.service.UserService;
+import healthcamp.ui.DashboardView;
+import healthcamp.ui.DiagnosticsView;
 import healthcamp.ui.LoginSignupView;
+import healthcamp.ui.PatientTableSource;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 public class Main extends Application {
     
-    private PatientDAO patientDAO = new PatientDAO();
+    private static final int SEARCH_PAGE_SIZE = 100;
+    
+    private PatientService patientService;
     private TableView<PatientRecord> table = new TableView<>();
+    private PatientTableSource patientSource;
+    private final ObservableList<PatientRecord> searchResults = FXCollections.observableArrayList();
     private TextField searchField = new TextField();
+    private ProgressIndicator busyIndicator = new ProgressIndicator();
     private Stage primaryStage;
     private int currentUserId;
+    private int pendingRequests;
+    private final LatestRequest<List<PatientRecord>> searchRequest = new LatestRequest<>();
+    private final SearchSession searchSession = new SearchSession();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(250));
+    private final PauseTransition syncRefresh = new PauseTransition(Duration.millis(500));
     
     @Override
     public void start(Stage stage) {
-        DatabaseManager.initializeDatabase();
         this.primaryStage = stage;
-        
         stage.setTitle("Health Camp Records");
-        
-        showLoginScreen();
+        VBox opening = new VBox(12, new ProgressIndicator(), new Label("Opening database..."));
+        opening.setAlignment(javafx.geometry.Pos.CENTER);
+        stage.setScene(new Scene(opening, 500, 550));
+        stage.show();
+        
+        // migrations and the first statistics backfill scan the patients table; keep them off the FX thread
+        CompletableFuture.runAsync(DatabaseManager::initializeDatabase, ServiceExecutors.database())
+                .whenCompleteAsync((ignored, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        cause.printStackTrace();
+                        showAlert("Error", cause.getMessage(), Alert.AlertType.ERROR);
+                        Platform.exit();
+                        return;
+                    }
+                    startServices();
+                    showLoginScreen();
+                }, ServiceExecutors.fx());
+    }
+    
+    /** Runs once the schema is up to date: the patient DAOs start the journal sync and write pipeline. */
+    private void startServices() {
+        patientService = new PatientService();
+        MetricsServer.start();
+        
+        // journaled patients get their real ids once synced; redraw the rows in view
+        syncRefresh.setOnFinished(e -> {
+            if (patientSource != null && table.getItems() == patientSource) {
+                reloadPatients();
+            }
+        });
+        patientService.addSyncListener(userId -> Platform.runLater(() -> {
+            if (userId == currentUserId) {
+                syncRefresh.playFromStart();
+            }
+        }));
+    }
+    
+    @Override
+    public void stop() {
+        MetricsServer.stop();
+        ServiceExecutors.shutdown();
+        OfflinePatientDAO.shutdown();
+        PatientWritePipeline.shutdown();
+        DatabaseManager.shutdown();
     }
     
     private void showLoginScreen() {
         LoginSignupView loginView = new LoginSignupView(user -> {
-            currentUserId = user.getId();
+            int userId = user.getId();
+            currentUserId = userId;
+            patientService.rebuildSearchIndex(userId);
+            // counts come from the statistics rollup; rows added outside the app need it rebuilt
+            patientService.repairStats(userId).whenCompleteAsync((repaired, error) -> {
+                if (error != null) {
+                    error.printStackTrace();
+                } else if (repaired && userId == currentUserId && table.getItems() == patientSource) {
+                    reloadPatients();
+                }
+            }, ServiceExecutors.fx());
             showMainApp();
         });
         Scene loginScene = new Scene(loginView, 500, 550);
@@ -45,6 +133,7 @@ public class Main extends Application {
     }
     
     private void showMainApp() {
+        patientSource = new PatientTableSource(patientService, currentUserId);
         BorderPane root = buildMainUI();
         Scene scene = new Scene(root, 1100, 600);
         try {
@@ -83,7 +172,10 @@ public class Main extends Application {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
-        HBox headerBox = new HBox(10, header, spacer, viewUsersBtn, logoutBtn);
+        busyIndicator.setPrefSize(24, 24);
+        busyIndicator.setVisible(false);
+        
+        HBox headerBox = new HBox(10, header, spacer, busyIndicator, viewUsersBtn, logoutBtn);
         headerBox.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
         
         VBox top = new VBox(10, headerBox);
@@ -112,12 +204,24 @@ public class Main extends Application {
         Button searchBtn = new Button("Search");
         Button showAllBtn = new Button("Show All");
         Button reportBtn = new Button("Today's Report");
+        Button dashboardBtn = new Button("Dashboard");
+        Button diagnosticsBtn = new Button("Diagnostics");
+        Button importBtn = new Button("Import");
+        Button exportBtn = new Button("Export");
         
         searchBtn.setOnAction(e -> searchPatients());
+        searchField.setOnAction(e -> searchPatients());
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> searchDebounce.playFromStart());
+        searchDebounce.setOnFinished(e -> searchPatients());
         showAllBtn.setOnAction(e -> loadAllPatients());
         reportBtn.setOnAction(e -> showTodayReport());
+        dashboardBtn.setOnAction(e -> showDashboard());
+        diagnosticsBtn.setOnAction(e -> showDiagnostics());
+        importBtn.setOnAction(e -> importPatients());
+        exportBtn.setOnAction(e -> exportPatients());
         
-        searchBox.getChildren().addAll(searchField, searchBtn, showAllBtn, reportBtn);
+        searchBox.getChildren().addAll(searchField, searchBtn, showAllBtn, reportBtn, dashboardBtn, diagnosticsBtn,
+                importBtn, exportBtn);
         searchBox.setPadding(new Insets(10, 0, 0, 0));
         
         root.setTop(top);
@@ -130,42 +234,82 @@ public class Main extends Application {
     private void setupTable() {
         table.getColumns().clear();
         
-        TableColumn<PatientRecord, Integer> idCol = new TableColumn<>("ID");
-        idCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        idCol.setPrefWidth(50);
-        
-        TableColumn<PatientRecord, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        nameCol.setPrefWidth(120);
-        
-        TableColumn<PatientRecord, Integer> ageCol = new TableColumn<>("Age");
-        ageCol.setCellValueFactory(new PropertyValueFactory<>("age"));
-        ageCol.setPrefWidth(50);
+        TableColumn<PatientRecord, Integer> idCol = column("ID", PatientRecord::getId, 50);
+        idCol.setUserData(PatientSort.Key.ID);
         
-        TableColumn<PatientRecord, String> genderCol = new TableColumn<>("Gender");
-        genderCol.setCellValueFactory(new PropertyValueFactory<>("gender"));
-        genderCol.setPrefWidth(70);
+        TableColumn<PatientRecord, String> nameCol = column("Name", PatientRecord::getName, 120);
+        nameCol.setUserData(PatientSort.Key.NAME);
         
-        TableColumn<PatientRecord, String> phoneCol = new TableColumn<>("Phone");
-        phoneCol.setCellValueFactory(new PropertyValueFactory<>("phone"));
-        phoneCol.setPrefWidth(100);
+        TableColumn<PatientRecord, Integer> ageCol = column("Age", PatientRecord::getAge, 50);
+        ageCol.setUserData(PatientSort.Key.AGE);
         
-        TableColumn<PatientRecord, String> symptomsCol = new TableColumn<>("Symptoms");
-        symptomsCol.setCellValueFactory(new PropertyValueFactory<>("symptoms"));
-        symptomsCol.setPrefWidth(150);
+        TableColumn<PatientRecord, String> genderCol = column("Gender", PatientRecord::getGender, 70);
+        TableColumn<PatientRecord, String> phoneCol = column("Phone", PatientRecord::getPhone, 100);
+        TableColumn<PatientRecord, String> symptomsCol = column("Symptoms", PatientRecord::getSymptoms, 150);
+        TableColumn<PatientRecord, String> diagnosisCol = column("Diagnosis", PatientRecord::getDiagnosis, 120);
         
-        TableColumn<PatientRecord, String> diagnosisCol = new TableColumn<>("Diagnosis");
-        diagnosisCol.setCellValueFactory(new PropertyValueFactory<>("diagnosis"));
-        diagnosisCol.setPrefWidth(120);
+        TableColumn<PatientRecord, LocalDate> dateCol = column("Visit Date", PatientRecord::getVisitDate, 100);
+        dateCol.setUserData(PatientSort.Key.VISIT_DATE);
         
-        TableColumn<PatientRecord, LocalDate> dateCol = new TableColumn<>("Visit Date");
-        dateCol.setCellValueFactory(new PropertyValueFactory<>("visitDate"));
-        dateCol.setPrefWidth(100);
+        // only columns with an index behind them can be sorted by the database
+        for (TableColumn<PatientRecord, ?> unindexed : List.of(genderCol, phoneCol, symptomsCol, diagnosisCol)) {
+            unindexed.setSortable(false);
+        }
         
     table.getColumns().addAll(idCol, nameCol, ageCol, genderCol, phoneCol,
                   symptomsCol, diagnosisCol, dateCol);
 
     table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+    table.setSortPolicy(t -> {
+        if (t.getItems() != patientSource) {
+            return TableView.DEFAULT_SORT_POLICY.call(t);
+        }
+        if (patientSource.setSort(selectedSort())) {
+            reloadPatients();
+        }
+        return true;
+    });
+    table.skinProperty().addListener((obs, oldSkin, newSkin) -> attachViewportListener());
+    }
+    
+    /** Typed, non-reflective cell values. Rows the table source has not loaded yet are null. */
+    private static <T> TableColumn<PatientRecord, T> column(String title, Function<PatientRecord, T> value, double width) {
+        TableColumn<PatientRecord, T> col = new TableColumn<>(title);
+        col.setCellValueFactory(cell -> cell.getValue() == null
+            ? null : new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        col.setPrefWidth(width);
+        return col;
+    }
+    
+    /** The first sort column, or the default visit order when none is chosen. */
+    private PatientSort selectedSort() {
+        if (table.getSortOrder().isEmpty()) {
+            return PatientSort.DEFAULT;
+        }
+        TableColumn<PatientRecord, ?> col = table.getSortOrder().get(0);
+        return new PatientSort((PatientSort.Key) col.getUserData(),
+            col.getSortType() == TableColumn.SortType.DESCENDING);
+    }
+    
+    private void attachViewportListener() {
+        if (table.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+            // visible cells are only known once the flow has laid itself out
+            flow.positionProperty().addListener((obs, oldVal, newVal) ->
+                Platform.runLater(() -> viewportChanged(flow)));
+        }
+    }
+    
+    private void viewportChanged(VirtualFlow<?> flow) {
+        IndexedCell<?> first = flow.getFirstVisibleCell();
+        IndexedCell<?> last = flow.getLastVisibleCell();
+        if (first == null || last == null) {
+            return;
+        }
+        if (table.getItems() == patientSource) {
+            patientSource.setViewport(first.getIndex(), last.getIndex());
+        } else if (last.getIndex() >= searchResults.size() * 0.9) {
+            loadMoreResults();
+        }
     }
     
     private VBox createFormPanel() {
@@ -240,34 +384,62 @@ public class Main extends Application {
                     datePicker.getValue()
                 );
                 
-                if (patientDAO.addPatient(patient, currentUserId)) {
-                    showAlert("Success", "Patient record added successfully!", Alert.AlertType.INFORMATION);
-                    clearForm(nameField, ageField, genderBox, phoneField, symptomsArea, diagnosisField, treatmentArea);
-                    loadAllPatients();
-                } else {
-                    showAlert("Error", "Failed to add patient record", Alert.AlertType.ERROR);
-                }
+                addBtn.setDisable(true);
+                track(patientService.add(patient, currentUserId)).whenCompleteAsync((added, error) -> {
+                    addBtn.setDisable(false);
+                    if (error != null) {
+                        showLoadError(error);
+                    } else if (added != null) {
+                        showAlert("Success", "Patient record added successfully!", Alert.AlertType.INFORMATION);
+                        clearForm(nameField, ageField, genderBox, phoneField, symptomsArea, diagnosisField, treatmentArea);
+                        searchSession.discardResults();
+                        if (table.getItems() == patientSource) {
+                            patientSource.added(added);
+                        }
+                    } else {
+                        showAlert("Error", "Failed to add patient record", Alert.AlertType.ERROR);
+                    }
+                }, ServiceExecutors.fx());
             }
         });
         
         updateBtn.setOnAction(e -> {
             PatientRecord selected = table.getSelectionModel().getSelectedItem();
             if (selected != null && validateInput(nameField, ageField, genderBox)) {
-                selected.setName(nameField.getText());
-                selected.setAge(Integer.parseInt(ageField.getText()));
-                selected.setGender(genderBox.getValue());
-                selected.setPhone(phoneField.getText());
-                selected.setSymptoms(symptomsArea.getText());
-                selected.setDiagnosis(diagnosisField.getText());
-                selected.setTreatment(treatmentArea.getText());
-                selected.setVisitDate(datePicker.getValue());
+                PatientRecord edited = new PatientRecord(selected);
+                edited.setName(nameField.getText());
+                edited.setAge(Integer.parseInt(ageField.getText()));
+                edited.setGender(genderBox.getValue());
+                edited.setPhone(phoneField.getText());
+                edited.setSymptoms(symptomsArea.getText());
+                edited.setDiagnosis(diagnosisField.getText());
+                edited.setTreatment(treatmentArea.getText());
+                edited.setVisitDate(datePicker.getValue());
                 
-                if (patientDAO.updatePatient(selected)) {
-                    showAlert("Success", "Patient record updated!", Alert.AlertType.INFORMATION);
-                    loadAllPatients();
-                } else {
-                    showAlert("Error", "Failed to update record", Alert.AlertType.ERROR);
-                }
+                updateBtn.setDisable(true);
+                track(patientService.update(edited)).whenCompleteAsync((updated, error) -> {
+                    updateBtn.setDisable(false);
+                    if (error != null) {
+                        showLoadError(error);
+                    } else if (updated != null) {
+                        showAlert("Success", "Patient record updated!", Alert.AlertType.INFORMATION);
+                        searchSession.discardResults();
+                        if (table.getItems() == patientSource) {
+                            int at = patientSource.updated(updated);
+                            if (at >= 0) {
+                                table.getSelectionModel().select(at);
+                            }
+                        } else {
+                            int at = searchResults.indexOf(selected);
+                            if (at >= 0) {
+                                searchResults.set(at, updated);
+                                table.getSelectionModel().select(at);
+                            }
+                        }
+                    } else {
+                        showAlert("Error", "Failed to update record", Alert.AlertType.ERROR);
+                    }
+                }, ServiceExecutors.fx());
             } else {
                 showAlert("Warning", "Please select a patient from the table first", Alert.AlertType.WARNING);
             }
@@ -282,11 +454,26 @@ public class Main extends Application {
                 confirm.setContentText("This action cannot be undone.");
                 
                 if (confirm.showAndWait().get() == ButtonType.OK) {
-                    if (patientDAO.deletePatient(selected.getId())) {
-                        showAlert("Success", "Patient record deleted", Alert.AlertType.INFORMATION);
-                        clearForm(nameField, ageField, genderBox, phoneField, symptomsArea, diagnosisField, treatmentArea);
-                        loadAllPatients();
-                    }
+                    deleteBtn.setDisable(true);
+                    track(patientService.delete(selected.getId())).whenCompleteAsync((deleted, error) -> {
+                        deleteBtn.setDisable(false);
+                        if (error != null) {
+                            showLoadError(error);
+                        } else if (deleted != null) {
+                            showAlert("Success", "Patient record deleted", Alert.AlertType.INFORMATION);
+                            clearForm(nameField, ageField, genderBox, phoneField, symptomsArea, diagnosisField, treatmentArea);
+                            searchSession.discardResults();
+                            if (table.getItems() == patientSource) {
+                                if (!patientSource.removed(selected.getId())) {
+                                    reloadPatients();
+                                }
+                            } else {
+                                searchResults.remove(selected);
+                            }
+                        } else {
+                            showAlert("Error", "Failed to delete patient record", Alert.AlertType.ERROR);
+                        }
+                    }, ServiceExecutors.fx());
                 }
             } else {
                 showAlert("Warning", "Please select a patient to delete", Alert.AlertType.WARNING);
@@ -327,23 +514,214 @@ public class Main extends Application {
     }
     
     private void loadAllPatients() {
-        table.getItems().clear();
-        table.getItems().addAll(patientDAO.getAllPatients(currentUserId));
+        searchDebounce.stop();
+        searchRequest.cancel();
+        searchSession.reset();
+        searchResults.clear();
+        table.setItems(patientSource);
+        table.setPlaceholder(new Label("Loading..."));
+        patientSource.setSort(selectedSort());
+        reloadPatients();
     }
     
+    /** Re-reads the patient count and the rows in view, keeping the scroll position. */
+    private void reloadPatients() {
+        track(patientSource.reload()).whenCompleteAsync((count, error) -> {
+            if (error != null) {
+                showLoadError(error);
+            } else {
+                table.setPlaceholder(new Label("No patient records"));
+            }
+        }, ServiceExecutors.fx());
+    }
+    
+    private void loadMoreResults() {
+        if (searchSession.isActive() && searchSession.hasMore() && !searchRequest.isPending()) {
+            requestSearch(searchSession.getKeyword(), searchSession.getLimit() + SEARCH_PAGE_SIZE);
+        }
+    }
+    
+    /**
+     * Runs as the user types (debounced) and from the Search button. A phone
+     * number that extends the previous one is answered from the rows already
+     * shown; anything else is queried again.
+     */
     private void searchPatients() {
+        searchDebounce.stop();
         String keyword = searchField.getText().trim();
-        if (!keyword.isEmpty()) {
-            table.getItems().clear();
-            table.getItems().addAll(patientDAO.searchPatients(keyword, currentUserId));
+        if (keyword.isEmpty()) {
+            if (searchSession.isActive() || searchRequest.isPending()) {
+                loadAllPatients();
+            }
+            return;
+        }
+        List<PatientRecord> refined = searchSession.refine(keyword);
+        if (refined != null) {
+            searchRequest.cancel();
+            showResults(refined);
+        } else {
+            requestSearch(keyword, SEARCH_PAGE_SIZE);
+        }
+    }
+    
+    private void requestSearch(String keyword, int limit) {
+        searchRequest.submit(() -> track(patientService.search(keyword, currentUserId, limit)),
+            results -> {
+                searchSession.remember(keyword, limit, results);
+                showResults(results);
+            }, this::showLoadError);
+    }
+    
+    /** Search results are few enough to sort in memory when a column is clicked. */
+    private void showResults(List<PatientRecord> results) {
+        searchResults.setAll(results);
+        if (table.getItems() != searchResults) {
+            table.setItems(searchResults);
         }
+        table.sort();
+        table.setPlaceholder(new Label("No matching patients"));
     }
     
     private void showTodayReport() {
-        int count = patientDAO.getTodayPatientCount(currentUserId);
-        showAlert("Today's Report", 
-            "Total patients seen today: " + count, 
-            Alert.AlertType.INFORMATION);
+        track(patientService.todayCount(currentUserId)).thenAcceptAsync(count ->
+            showAlert("Today's Report", 
+                "Total patients seen today: " + count, 
+                Alert.AlertType.INFORMATION), ServiceExecutors.fx());
+    }
+    
+    private void showDashboard() {
+        Stage dashboardStage = new Stage();
+        dashboardStage.initOwner(primaryStage);
+        dashboardStage.setTitle("Dashboard");
+        dashboardStage.setScene(new Scene(new DashboardView(currentUserId), 1200, 760));
+        dashboardStage.show();
+    }
+    
+    private void showDiagnostics() {
+        DiagnosticsView view = new DiagnosticsView();
+        Stage diagnosticsStage = new Stage();
+        diagnosticsStage.initOwner(primaryStage);
+        diagnosticsStage.setTitle("Diagnostics");
+        diagnosticsStage.setScene(new Scene(view, 1150, 520));
+        diagnosticsStage.setOnHidden(e -> view.stop());
+        diagnosticsStage.show();
+    }
+    
+    /** Shows the busy indicator until the future completes. */
+    private <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        pendingRequests++;
+        busyIndicator.setVisible(true);
+        future.whenCompleteAsync((result, error) -> {
+            pendingRequests--;
+            busyIndicator.setVisible(pendingRequests > 0);
+        }, ServiceExecutors.fx());
+        return future;
+    }
+    
+    private void showLoadError(Throwable error) {
+        table.setPlaceholder(new Label("Could not load patient records"));
+        showAlert("Error", "Database request failed: " + error.getMessage(), Alert.AlertType.ERROR);
+    }
+    
+    private void importPatients() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Patient Records");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.csv.gz"));
+        File file = chooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        
+        ProgressBar progressBar = new ProgressBar(0);
+        progressBar.setPrefWidth(360);
+        Label statusLabel = new Label("Starting import...");
+        
+        Stage dialog = new Stage();
+        dialog.initOwner(primaryStage);
+        dialog.initModality(Modality.WINDOW_MODAL);
+        dialog.setTitle("Importing " + file.getName());
+        VBox layout = new VBox(10, new Label(file.getName()), progressBar, statusLabel);
+        layout.setPadding(new Insets(15));
+        dialog.setScene(new Scene(layout));
+        
+        long fileSize = Math.max(1, file.length());
+        int userId = currentUserId;
+        Task<PatientImporter.ImportResult> task = new Task<>() {
+            @Override
+            protected PatientImporter.ImportResult call() throws Exception {
+                return new PatientImporter(userId)
+                    .setProgressListener((rows, bytes, rowsPerSecond) -> {
+                        updateProgress(bytes, fileSize);
+                        updateMessage(String.format("%,d rows read  -  %,.0f rows/s", rows, rowsPerSecond));
+                    })
+                    .importFile(file.toPath());
+            }
+        };
+        progressBar.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        
+        task.setOnSucceeded(e -> {
+            dialog.close();
+            PatientImporter.ImportResult result = task.getValue();
+            loadAllPatients();
+            if (result.getFailed() == 0) {
+                showAlert("Import", "Imported " + result, Alert.AlertType.INFORMATION);
+                return;
+            }
+            Alert saveReport = new Alert(Alert.AlertType.CONFIRMATION);
+            saveReport.setTitle("Import");
+            saveReport.setHeaderText("Imported " + result);
+            saveReport.setContentText("Save a report of the rejected rows?");
+            if (saveReport.showAndWait().get() == ButtonType.OK) {
+                FileChooser reportChooser = new FileChooser();
+                reportChooser.setInitialFileName(file.getName() + ".errors.csv");
+                File reportFile = reportChooser.showSaveDialog(primaryStage);
+                if (reportFile != null) {
+                    try {
+                        result.writeErrorReport(reportFile.toPath());
+                    } catch (IOException ex) {
+                        showAlert("Error", "Could not save report: " + ex.getMessage(), Alert.AlertType.ERROR);
+                    }
+                }
+            }
+        });
+        task.setOnFailed(e -> {
+            dialog.close();
+            showAlert("Error", "Import failed: " + task.getException().getMessage(), Alert.AlertType.ERROR);
+            loadAllPatients();
+        });
+        
+        dialog.show();
+        ServiceExecutors.database().execute(task);
+    }
+    
+    private void exportPatients() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Patient Records");
+        chooser.setInitialFileName("patients-" + LocalDate.now() + ".csv");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV", "*.csv", "*.csv.gz"),
+            new FileChooser.ExtensionFilter("JSON lines", "*.ndjson", "*.ndjson.gz"));
+        File file = chooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        
+        String name = file.getName().toLowerCase();
+        PatientExporter exporter = new PatientExporter(
+                name.contains(".ndjson") || name.contains(".json") ? PatientExporter.Format.NDJSON : PatientExporter.Format.CSV)
+            .setUserId(currentUserId)
+            .setGzip(name.endsWith(".gz"));
+        
+        Task<PatientExporter.ExportResult> task = new Task<>() {
+            @Override
+            protected PatientExporter.ExportResult call() throws Exception {
+                return exporter.export(file.toPath());
+            }
+        };
+        task.setOnSucceeded(e -> showAlert("Export", "Exported " + task.getValue(), Alert.AlertType.INFORMATION));
+        task.setOnFailed(e -> showAlert("Error", "Export failed: " + task.getException().getMessage(), Alert.AlertType.ERROR));
+        ServiceExecutors.database().execute(task);
     }
     
     private boolean validateInput(TextField name, TextField age, ComboBox<String> gender) {
@@ -414,8 +792,11 @@ public class Main extends Application {
         
         userTable.getColumns().addAll(idCol, usernameCol, emailCol, createdCol);
         
-        UserDAO userDAO = new UserDAO();
-        userTable.getItems().addAll(userDAO.getAllUsers());
+        userTable.setPlaceholder(new Label("Loading..."));
+        track(new UserService().getAllUsers()).thenAcceptAsync(users -> {
+            userTable.getItems().setAll(users);
+            userTable.setPlaceholder(new Label("No registered users"));
+        }, ServiceExecutors.fx());
         
         Button closeBtn = new Button("Close");
         closeBtn.setOnAction(e -> userStage.close());
@@ -0,0 +1,191 @@
+package healthcamp.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the dashboard aggregates over a {@link PatientSnapshot} in one
+ * parallel pass. Rows are split across the common fork/join pool; each leaf
+ * fills its own count arrays, which are summed on join.
+ */
+public final class AggregationEngine {
+
+    public static final int AGE_BIN_WIDTH = 10;
+    public static final int AGE_BINS = 10;
+
+    private AggregationEngine() {}
+
+    /** Rows matching every non-null criterion. Dates are inclusive. */
+    public static final class Filter {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final String gender;
+        private final String diagnosis;
+        private final int minAge;
+        private final int maxAge;
+
+        public Filter(LocalDate from, LocalDate to, String gender, String diagnosis, int minAge, int maxAge) {
+            this.from = from;
+            this.to = to;
+            this.gender = gender;
+            this.diagnosis = diagnosis;
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+        }
+
+        public static Filter all() {
+            return new Filter(null, null, null, null, 0, Integer.MAX_VALUE);
+        }
+    }
+
+    public static Result aggregate(PatientSnapshot snapshot, Filter filter) {
+        long start = System.nanoTime();
+        int firstDay = Math.max(snapshot.minDay,
+                filter.from == null ? Integer.MIN_VALUE : (int) filter.from.toEpochDay());
+        int lastDay = Math.min(snapshot.maxDay,
+                filter.to == null ? Integer.MAX_VALUE : (int) filter.to.toEpochDay());
+        int genderCode = filter.gender == null ? -1 : snapshot.genders.codeOf(filter.gender);
+        int diagnosisCode = filter.diagnosis == null ? -1 : snapshot.diagnoses.codeOf(filter.diagnosis);
+        boolean impossible = snapshot.size == 0 || firstDay > lastDay
+                || (filter.gender != null && genderCode < 0)
+                || (filter.diagnosis != null && diagnosisCode < 0);
+        if (impossible) {
+            return new Result(snapshot, 0, firstDay, new int[0], new int[0], new int[AGE_BINS],
+                    new int[0], System.nanoTime() - start);
+        }
+
+        int days = lastDay - firstDay + 1;
+        int diagnosisCount = snapshot.diagnoses.size();
+        int genderCount = snapshot.genders.size();
+        int[] epochDays = snapshot.epochDays;
+        short[] ages = snapshot.ages;
+        int[] genders = snapshot.genderCodes;
+        int[] diagnoses = snapshot.diagnosisCodes;
+        int minAge = filter.minAge;
+        int maxAge = filter.maxAge;
+
+        Partial total = IntStream.range(0, snapshot.size).parallel().collect(
+            () -> new Partial(days, diagnosisCount, genderCount),
+            (p, row) -> {
+                int day = epochDays[row];
+                int age = ages[row];
+                if (day < firstDay || day > lastDay || age < minAge || age > maxAge
+                        || (genderCode >= 0 && genders[row] != genderCode)
+                        || (diagnosisCode >= 0 && diagnoses[row] != diagnosisCode)) {
+                    return;
+                }
+                p.matched++;
+                p.perDay[day - firstDay]++;
+                p.perDiagnosis[diagnoses[row]]++;
+                p.perGender[genders[row]]++;
+                p.ageBins[Math.min(age / AGE_BIN_WIDTH, AGE_BINS - 1)]++;
+            },
+            Partial::merge);
+
+        return new Result(snapshot, total.matched, firstDay, total.perDay, total.perDiagnosis,
+                total.ageBins, total.perGender, System.nanoTime() - start);
+    }
+
+    private static final class Partial {
+        int matched;
+        final int[] perDay;
+        final int[] perDiagnosis;
+        final int[] perGender;
+        final int[] ageBins = new int[AGE_BINS];
+
+        Partial(int days, int diagnoses, int genders) {
+            perDay = new int[days];
+            perDiagnosis = new int[diagnoses];
+            perGender = new int[genders];
+        }
+
+        void merge(Partial other) {
+            matched += other.matched;
+            add(perDay, other.perDay);
+            add(perDiagnosis, other.perDiagnosis);
+            add(perGender, other.perGender);
+            add(ageBins, other.ageBins);
+        }
+
+        private static void add(int[] into, int[] from) {
+            for (int i = 0; i < into.length; i++) {
+                into[i] += from[i];
+            }
+        }
+    }
+
+    public static final class Result {
+        private final PatientSnapshot snapshot;
+        private final int matched;
+        private final int firstDay;
+        private final int[] perDay;
+        private final int[] perDiagnosis;
+        private final int[] ageBins;
+        private final int[] perGender;
+        private final long elapsedNanos;
+
+        Result(PatientSnapshot snapshot, int matched, int firstDay, int[] perDay, int[] perDiagnosis,
+               int[] ageBins, int[] perGender, long elapsedNanos) {
+            this.snapshot = snapshot;
+            this.matched = matched;
+            this.firstDay = firstDay;
+            this.perDay = perDay;
+            this.perDiagnosis = perDiagnosis;
+            this.ageBins = ageBins;
+            this.perGender = perGender;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getMatched() { return matched; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        /** Visits per day, including days with none, in date order. */
+        public Map<LocalDate, Integer> getDailyVisits() {
+            Map<LocalDate, Integer> days = new LinkedHashMap<>();
+            for (int i = 0; i < perDay.length; i++) {
+                days.put(LocalDate.ofEpochDay(firstDay + i), perDay[i]);
+            }
+            return days;
+        }
+
+        /** The {@code limit} most frequent diagnoses, largest first. */
+        public Map<String, Integer> getTopDiagnoses(int limit) {
+            return top(perDiagnosis, snapshot.diagnoses, limit);
+        }
+
+        public Map<String, Integer> getGenderSplit() {
+            return top(perGender, snapshot.genders, Integer.MAX_VALUE);
+        }
+
+        /** Counts per age band of {@link #AGE_BIN_WIDTH} years; the last band is open-ended. */
+        public int[] getAgeHistogram() {
+            return Arrays.copyOf(ageBins, ageBins.length);
+        }
+
+        public static String ageBinLabel(int bin) {
+            int low = bin * AGE_BIN_WIDTH;
+            return bin == AGE_BINS - 1 ? low + "+" : low + "-" + (low + AGE_BIN_WIDTH - 1);
+        }
+
+        private static Map<String, Integer> top(int[] counts, StringDictionary dictionary, int limit) {
+            List<Integer> codes = new ArrayList<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    codes.add(code);
+                }
+            }
+            codes.sort(Collections.reverseOrder((a, b) -> Integer.compare(counts[a], counts[b])));
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (int i = 0; i < codes.size() && i < limit; i++) {
+                result.put(dictionary.decode(codes.get(i)), counts[codes.get(i)]);
+            }
+            return result;
+        }
+    }
+}
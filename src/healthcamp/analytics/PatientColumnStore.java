@@ -0,0 +1,196 @@
+package healthcamp.analytics;
+
+import healthcamp.database.DatabaseManager;
+import healthcamp.database.PatientSort;
+import healthcamp.model.PatientRecord;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Struct-of-arrays store for large read-only patient lists. Visit dates are
+ * epoch-day ints, ages are shorts, and the low-cardinality text columns
+ * (gender, diagnosis, treatment) are dictionary encoded, so repeated values
+ * are held once. {@link PatientRecord} objects are only created when a row
+ * is asked for.
+ */
+public final class PatientColumnStore {
+
+    private final int size;
+    private final int[] ids;
+    private final int[] epochDays;
+    private final short[] ages;
+    private final String[] names;
+    private final String[] phones;
+    private final String[] symptoms;
+    private final int[] genderCodes;
+    private final int[] diagnosisCodes;
+    private final int[] treatmentCodes;
+    private final StringDictionary genders;
+    private final StringDictionary diagnoses;
+    private final StringDictionary treatments;
+
+    private PatientColumnStore(Builder b) {
+        size = b.size;
+        ids = Arrays.copyOf(b.ids, size);
+        epochDays = Arrays.copyOf(b.epochDays, size);
+        ages = Arrays.copyOf(b.ages, size);
+        names = Arrays.copyOf(b.names, size);
+        phones = Arrays.copyOf(b.phones, size);
+        symptoms = Arrays.copyOf(b.symptoms, size);
+        genderCodes = Arrays.copyOf(b.genderCodes, size);
+        diagnosisCodes = Arrays.copyOf(b.diagnosisCodes, size);
+        treatmentCodes = Arrays.copyOf(b.treatmentCodes, size);
+        genders = b.genders;
+        diagnoses = b.diagnoses;
+        treatments = b.treatments;
+    }
+
+    /**
+     * Streams all of the user's patients, in {@code sort} order, straight
+     * into a store; no {@link PatientRecord} is created along the way.
+     */
+    public static PatientColumnStore load(int userId, PatientSort sort) throws SQLException {
+        String sql = "SELECT id, name, age, gender, phone, symptoms, diagnosis, treatment, visit_date"
+            + " FROM patients WHERE user_id = ? ORDER BY " + sort.orderBy("");
+        Builder builder = new Builder();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(1000);
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    builder.add(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4), rs.getString(5),
+                            rs.getString(6), rs.getString(7), rs.getString(8), rs.getDate(9).toLocalDate());
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /** Copies {@code patients}, in order, into a new store. */
+    public static PatientColumnStore of(Collection<PatientRecord> patients) {
+        Builder builder = new Builder();
+        for (PatientRecord patient : patients) {
+            builder.add(patient);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Row holding patient {@code id}, or -1. Scans the id column only. */
+    public int indexOfId(int id) {
+        for (int row = 0; row < size; row++) {
+            if (ids[row] == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    public int getId(int row) { return ids[row]; }
+    public String getName(int row) { return names[row]; }
+    public int getAge(int row) { return ages[row]; }
+    public String getGender(int row) { return genders.decode(genderCodes[row]); }
+    public String getPhone(int row) { return phones[row]; }
+    public String getSymptoms(int row) { return symptoms[row]; }
+    public String getDiagnosis(int row) { return diagnoses.decode(diagnosisCodes[row]); }
+    public String getTreatment(int row) { return treatments.decode(treatmentCodes[row]); }
+    public LocalDate getVisitDate(int row) { return LocalDate.ofEpochDay(epochDays[row]); }
+
+    /** Materializes one row; each call returns a new, independent record. */
+    public PatientRecord get(int row) {
+        PatientRecord patient = new PatientRecord(getName(row), getAge(row), getGender(row), getPhone(row),
+                getSymptoms(row), getDiagnosis(row), getTreatment(row), getVisitDate(row));
+        patient.setId(ids[row]);
+        return patient;
+    }
+
+    /**
+     * Read-only list view that materializes rows on access. A table only
+     * asks for the rows it is drawing, so most rows never become objects.
+     */
+    public List<PatientRecord> asList() {
+        return new RecordView();
+    }
+
+    private final class RecordView extends AbstractList<PatientRecord> implements RandomAccess {
+        @Override
+        public PatientRecord get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return PatientColumnStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    public static final class Builder {
+        private int size;
+        private int[] ids = new int[1024];
+        private int[] epochDays = new int[1024];
+        private short[] ages = new short[1024];
+        private String[] names = new String[1024];
+        private String[] phones = new String[1024];
+        private String[] symptoms = new String[1024];
+        private int[] genderCodes = new int[1024];
+        private int[] diagnosisCodes = new int[1024];
+        private int[] treatmentCodes = new int[1024];
+        private final StringDictionary genders = new StringDictionary();
+        private final StringDictionary diagnoses = new StringDictionary();
+        private final StringDictionary treatments = new StringDictionary();
+
+        public Builder add(PatientRecord patient) {
+            return add(patient.getId(), patient.getName(), patient.getAge(), patient.getGender(), patient.getPhone(),
+                    patient.getSymptoms(), patient.getDiagnosis(), patient.getTreatment(), patient.getVisitDate());
+        }
+
+        public Builder add(int id, String name, int age, String gender, String phone, String symptom,
+                           String diagnosis, String treatment, LocalDate visitDate) {
+            if (size == ids.length) {
+                grow(size * 2);
+            }
+            ids[size] = id;
+            epochDays[size] = Math.toIntExact(visitDate.toEpochDay());
+            ages[size] = (short) Math.max(0, Math.min(Short.MAX_VALUE, age));
+            names[size] = name;
+            phones[size] = phone;
+            symptoms[size] = symptom;
+            genderCodes[size] = genders.encode(gender);
+            diagnosisCodes[size] = diagnoses.encode(diagnosis);
+            treatmentCodes[size] = treatments.encode(treatment);
+            size++;
+            return this;
+        }
+
+        private void grow(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            names = Arrays.copyOf(names, capacity);
+            phones = Arrays.copyOf(phones, capacity);
+            symptoms = Arrays.copyOf(symptoms, capacity);
+            genderCodes = Arrays.copyOf(genderCodes, capacity);
+            diagnosisCodes = Arrays.copyOf(diagnosisCodes, capacity);
+            treatmentCodes = Arrays.copyOf(treatmentCodes, capacity);
+        }
+
+        public PatientColumnStore build() {
+            return new PatientColumnStore(this);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package healthcamp.analytics;
+
+import healthcamp.database.DatabaseManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Read-only columnar copy of the fields reports group by: visit day as an
+ * epoch-day int, age, and dictionary-encoded gender and diagnosis. About 14
+ * bytes per patient, so a million visits fit comfortably in memory and can
+ * be re-aggregated without going back to the database.
+ */
+public final class PatientSnapshot {
+
+    static final String NONE = "(none)";
+
+    // package-private so AggregationEngine can scan the arrays directly
+    final int size;
+    final int[] epochDays;
+    final short[] ages;
+    final int[] genderCodes;
+    final int[] diagnosisCodes;
+    final StringDictionary genders;
+    final StringDictionary diagnoses;
+    final int minDay;
+    final int maxDay;
+
+    private PatientSnapshot(Builder b) {
+        this.size = b.size;
+        this.epochDays = Arrays.copyOf(b.epochDays, b.size);
+        this.ages = Arrays.copyOf(b.ages, b.size);
+        this.genderCodes = Arrays.copyOf(b.genderCodes, b.size);
+        this.diagnosisCodes = Arrays.copyOf(b.diagnosisCodes, b.size);
+        this.genders = b.genders;
+        this.diagnoses = b.diagnoses;
+        this.minDay = b.minDay;
+        this.maxDay = b.maxDay;
+    }
+
+    /** Streams the user's visits from the database into a new snapshot. */
+    public static PatientSnapshot load(int userId) throws SQLException {
+        String sql = "SELECT visit_date, age, gender, diagnosis FROM patients WHERE user_id = ?";
+        Builder builder = new Builder();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(1000);
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    builder.add(rs.getDate(1).toLocalDate().toEpochDay(), rs.getInt(2),
+                            rs.getString(3), rs.getString(4));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public int size() { return size; }
+    public StringDictionary getGenders() { return genders; }
+    public StringDictionary getDiagnoses() { return diagnoses; }
+
+    /** Earliest visit, or {@code null} for an empty snapshot. */
+    public LocalDate getFirstDate() {
+        return size == 0 ? null : LocalDate.ofEpochDay(minDay);
+    }
+
+    public LocalDate getLastDate() {
+        return size == 0 ? null : LocalDate.ofEpochDay(maxDay);
+    }
+
+    public static final class Builder {
+        private int size;
+        private int[] epochDays = new int[1024];
+        private short[] ages = new short[1024];
+        private int[] genderCodes = new int[1024];
+        private int[] diagnosisCodes = new int[1024];
+        private final StringDictionary genders = new StringDictionary();
+        private final StringDictionary diagnoses = new StringDictionary();
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+
+        public Builder add(long epochDay, int age, String gender, String diagnosis) {
+            if (size == epochDays.length) {
+                int capacity = size * 2;
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                genderCodes = Arrays.copyOf(genderCodes, capacity);
+                diagnosisCodes = Arrays.copyOf(diagnosisCodes, capacity);
+            }
+            int day = Math.toIntExact(epochDay);
+            epochDays[size] = day;
+            ages[size] = (short) Math.max(0, Math.min(Short.MAX_VALUE, age));
+            genderCodes[size] = genders.encode(label(gender));
+            diagnosisCodes[size] = diagnoses.encode(label(diagnosis));
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+            size++;
+            return this;
+        }
+
+        public PatientSnapshot build() {
+            return new PatientSnapshot(this);
+        }
+
+        private static String label(String value) {
+            return value == null || value.isBlank() ? NONE : value.trim();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package healthcamp.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense int codes to distinct strings so a column of repeated values
+ * can be stored as an {@code int[]}. Not thread-safe while being built;
+ * read-only use afterwards is safe.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /** Returns the code for {@code value}, or -1 if it never occurs. */
+    public int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public List<String> values() {
+        return List.copyOf(values);
+    }
+}
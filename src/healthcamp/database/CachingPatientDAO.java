@@ -0,0 +1,405 @@
+package healthcamp.database;
+
+import healthcamp.analytics.PatientColumnStore;
+import healthcamp.model.PatientRecord;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of {@link PatientDAO}. Reads are cached per
+ * user and query; each user's cache is LRU ordered and bounded by the number
+ * of rows it holds, and entries expire after a TTL.
+ * <p>
+ * Any write for a user drops that user's entries, since a single insert
+ * shifts every window after it. Writes made through other DAO instances and
+ * bulk imports are seen through {@link PatientChangeListener} notifications.
+ * The table's windows are cut from a {@link PatientColumnStore} of the
+ * user's patients in the table's order while it fits in half the cache;
+ * larger lists are read window by window.
+ * Empty and null results are not cached because the DAO also reports a
+ * failed query that way. Cached records are handed out as copies, since
+ * callers such as the table edit the records they are given in place.
+ */
+public final class CachingPatientDAO extends PatientDAO implements PatientChangeListener {
+
+    private static final Set<CachingPatientDAO> OPEN = ConcurrentHashMap.newKeySet();
+
+    private final int maxRowsPerUser;
+    private final long ttlNanos;
+    private final Map<Integer, UserCache> caches = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CachingPatientDAO() {
+        this(DatabaseManager.getConfig().getInt("cache.maxRowsPerUser", 20_000),
+             DatabaseManager.getConfig().getLong("cache.ttlSeconds", 300) * 1000);
+    }
+
+    public CachingPatientDAO(int maxRowsPerUser, long ttlMillis) {
+        this.maxRowsPerUser = maxRowsPerUser;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        addChangeListener(this);
+        OPEN.add(this);
+    }
+
+    /** Stops receiving change notifications; the cache is cleared. */
+    public void close() {
+        removeChangeListener(this);
+        OPEN.remove(this);
+        caches.clear();
+    }
+
+    @Override
+    public List<PatientRecord> getAllPatients(int userId) {
+        PatientColumnStore store = cached(userId, "rows:" + PatientSort.DEFAULT, () -> load(userId, PatientSort.DEFAULT));
+        return store != null ? store.asList() : super.getAllPatients(userId);
+    }
+
+    @Override
+    public List<PatientRecord> getPatientsAfter(int userId, PatientSort sort, PatientRecord after, int limit) {
+        PatientColumnStore store = rows(userId, sort);
+        int from = startOf(store, after);
+        if (from >= 0) {
+            return List.copyOf(store.asList().subList(from, Math.min(store.size(), from + limit)));
+        }
+        return copies(cached(userId, "after:" + sort + ":" + idOf(after) + ":" + limit,
+                () -> List.copyOf(super.getPatientsAfter(userId, sort, after, limit))));
+    }
+
+    @Override
+    public PatientRecord findSeekPosition(int userId, PatientSort sort, PatientRecord after, int skip) {
+        PatientColumnStore store = rows(userId, sort);
+        int from = startOf(store, after);
+        if (from >= 0) {
+            if (skip < 1) {
+                throw new IllegalArgumentException("skip must be at least 1");
+            }
+            int row = from + skip - 1;
+            return row < store.size() ? store.get(row) : null;
+        }
+        PatientRecord position = cached(userId, "position:" + sort + ":" + idOf(after) + ":" + skip,
+                () -> super.findSeekPosition(userId, sort, after, skip));
+        return position != null ? new PatientRecord(position) : null;
+    }
+
+    /**
+     * All of the user's patients in {@code sort} order, streamed from the
+     * database into a column store on first use and then shared by every
+     * window and seek until the next write, or null if they would take more
+     * than half the cache or could not be read. Rows become
+     * {@link PatientRecord}s only as windows are read from it.
+     */
+    private PatientColumnStore rows(int userId, PatientSort sort) {
+        int count = countPatients(userId);
+        // leave room for searches and counts so they do not keep evicting the store
+        if (count == 0 || count > maxRowsPerUser / 2) {
+            return null;
+        }
+        return cached(userId, "rows:" + sort, () -> load(userId, sort));
+    }
+
+    /** The store row following {@code after}, 0 when it is null, or -1 if the store cannot answer. */
+    private static int startOf(PatientColumnStore store, PatientRecord after) {
+        if (store == null) {
+            return -1;
+        }
+        if (after == null) {
+            return 0;
+        }
+        int at = store.indexOfId(after.getId());
+        return at < 0 ? -1 : at + 1;
+    }
+
+    private static PatientColumnStore load(int userId, PatientSort sort) {
+        try {
+            return PatientColumnStore.load(userId, sort);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public int countPatients(int userId) {
+        return cached(userId, "count", () -> super.countPatients(userId));
+    }
+
+    @Override
+    public List<PatientRecord> searchPatients(String keyword, int userId, int limit) {
+        String key = "search:" + limit + ":" + (keyword == null ? "" : keyword.trim().toLowerCase());
+        return copies(cached(userId, key, () -> List.copyOf(super.searchPatients(keyword, userId, limit))));
+    }
+
+    @Override
+    public int getTodayPatientCount(int userId) {
+        return cached(userId, "today:" + LocalDate.now(), () -> super.getTodayPatientCount(userId));
+    }
+
+    /** Fresh records for a cached list; the column store already builds new ones on every read. */
+    private static List<PatientRecord> copies(List<PatientRecord> rows) {
+        List<PatientRecord> copies = new ArrayList<>(rows.size());
+        for (PatientRecord row : rows) {
+            copies.add(new PatientRecord(row));
+        }
+        return copies;
+    }
+
+    private static String idOf(PatientRecord row) {
+        return row == null ? "start" : String.valueOf(row.getId());
+    }
+
+    private <T> T cached(int userId, String key, Supplier<T> loader) {
+        UserCache cache = caches.computeIfAbsent(userId, id -> new UserCache());
+        long generation;
+        synchronized (cache) {
+            Entry entry = cache.entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    @SuppressWarnings("unchecked")
+                    T value = (T) entry.value;
+                    return value;
+                }
+                cache.remove(key);
+                expirations.increment();
+            }
+            generation = cache.generation;
+        }
+        misses.increment();
+        T value = loader.get();
+        synchronized (cache) {
+            // a write that happened while loading makes this value stale
+            if (generation == cache.generation && !isEmpty(value)) {
+                cache.put(key, new Entry(value, weigh(value), System.nanoTime()));
+                evictOverflow(cache);
+            }
+        }
+        return value;
+    }
+
+    private void evictOverflow(UserCache cache) {
+        Iterator<Entry> eldest = cache.entries.values().iterator();
+        while (cache.rows > maxRowsPerUser && eldest.hasNext()) {
+            cache.rows -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null
+                || (value instanceof List<?> list && list.isEmpty())
+                || (value instanceof PatientColumnStore store && store.size() == 0)
+                || (value instanceof Integer count && count == 0);
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof List<?> list) {
+            return Math.max(1, list.size());
+        }
+        if (value instanceof PatientColumnStore store) {
+            return Math.max(1, store.size());
+        }
+        return 1;
+    }
+
+    public void invalidate(int userId) {
+        UserCache cache = caches.get(userId);
+        if (cache != null) {
+            synchronized (cache) {
+                cache.clear();
+            }
+            invalidations.increment();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Integer userId : caches.keySet()) {
+            invalidate(userId);
+        }
+    }
+
+    /** Invalidates the users whose cached results contain the patient, or everyone if none do. */
+    private void invalidateOwnerOf(int patientId) {
+        boolean found = false;
+        for (Map.Entry<Integer, UserCache> e : caches.entrySet()) {
+            boolean holds;
+            synchronized (e.getValue()) {
+                holds = e.getValue().holds(patientId);
+            }
+            if (holds) {
+                invalidate(e.getKey());
+                found = true;
+            }
+        }
+        if (!found) {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void patientAdded(int userId, PatientRecord patient) {
+        invalidate(userId);
+    }
+
+    @Override
+    public void patientUpdated(PatientRecord patient) {
+        invalidateOwnerOf(patient.getId());
+    }
+
+    @Override
+    public void patientDeleted(int patientId) {
+        invalidateOwnerOf(patientId);
+    }
+
+    @Override
+    public void patientsReloaded(int userId) {
+        invalidate(userId);
+    }
+
+    public CacheStats getStats() {
+        int entries = 0;
+        long rows = 0;
+        for (UserCache cache : caches.values()) {
+            synchronized (cache) {
+                entries += cache.entries.size();
+                rows += cache.rows;
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(),
+                invalidations.sum(), entries, rows);
+    }
+
+    /** The counters of every open cache added together, as shown on /metrics and in Diagnostics. */
+    public static CacheStats getCombinedStats() {
+        CacheStats total = new CacheStats(0, 0, 0, 0, 0, 0, 0);
+        for (CachingPatientDAO dao : OPEN) {
+            total = total.plus(dao.getStats());
+        }
+        return total;
+    }
+
+    private static final class Entry {
+        final Object value;
+        final int weight;
+        final long loadedAt;
+
+        Entry(Object value, int weight, long loadedAt) {
+            this.value = value;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean holds(int patientId) {
+            if (value instanceof PatientColumnStore store) {
+                return store.indexOfId(patientId) >= 0;
+            }
+            if (value instanceof PatientRecord row) {
+                return row.getId() == patientId;
+            }
+            List<?> rows = value instanceof List<?> list ? list : List.of();
+            for (Object row : rows) {
+                if (((PatientRecord) row).getId() == patientId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** One user's entries in access order, guarded by its own monitor. */
+    private static final class UserCache {
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        long rows;
+        long generation;
+
+        void put(String key, Entry entry) {
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                rows -= old.weight;
+            }
+            rows += entry.weight;
+        }
+
+        void remove(String key) {
+            Entry old = entries.remove(key);
+            if (old != null) {
+                rows -= old.weight;
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            rows = 0;
+            generation++;
+        }
+
+        boolean holds(int patientId) {
+            for (Entry entry : entries.values()) {
+                if (entry.holds(patientId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static final class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+        private final int entries;
+        private final long rows;
+
+        CacheStats(long hits, long misses, long evictions, long expirations, long invalidations,
+                   int entries, long rows) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+            this.entries = entries;
+            this.rows = rows;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getExpirations() { return expirations; }
+        public long getInvalidations() { return invalidations; }
+        public int getEntries() { return entries; }
+        public long getRows() { return rows; }
+
+        CacheStats plus(CacheStats other) {
+            return new CacheStats(hits + other.hits, misses + other.misses, evictions + other.evictions,
+                    expirations + other.expirations, invalidations + other.invalidations,
+                    entries + other.entries, rows + other.rows);
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d hitRate=%.1f%% evictions=%d expirations=%d invalidations=%d entries=%d rows=%d",
+                    hits, misses, getHitRate() * 100, evictions, expirations, invalidations, entries, rows);
+        }
+    }
+}
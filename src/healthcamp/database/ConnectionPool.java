@@ -0,0 +1,412 @@
+package healthcamp.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool. Borrowed connections are proxies whose
+ * {@code close()} hands the physical connection back to the pool, so DAO code
+ * keeps using try-with-resources exactly as before. Each physical connection
+ * keeps a {@link StatementCache} of up to {@code statementCacheSize} idle
+ * prepared statements, so closing a statement does not throw away its plan.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+    private final ScheduledExecutorService evictor;
+    private volatile SlowQueryLog slowQueryLog;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, Properties connectionProperties, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = 2;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "healthcamp-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Logs statements run on connections borrowed from now on that exceed its threshold; null turns it off. */
+    void setSlowQueryLog(SlowQueryLog log) {
+        if (log != null) {
+            log.attach(this);
+        }
+        this.slowQueryLog = log;
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+
+        try {
+            IdleConnection reused = takeValidIdle();
+            Connection physical;
+            StatementCache statements;
+            if (reused != null) {
+                physical = reused.connection;
+                statements = reused.statements;
+            } else {
+                physical = DriverManager.getConnection(url, connectionProperties);
+                created.increment();
+                statements = statementCacheSize > 0
+                        ? new StatementCache(physical, statementCacheSize, statementHits, statementMisses, statementEvictions)
+                        : null;
+            }
+            active.incrementAndGet();
+            recordBorrow(System.nanoTime() - start);
+            return wrap(physical, statements);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private IdleConnection takeValidIdle() {
+        while (true) {
+            IdleConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (isUsable(candidate.connection)) {
+                return candidate;
+            }
+            evicted.increment();
+            closeQuietly(candidate.connection);
+        }
+    }
+
+    private boolean isUsable(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordBorrow(long nanos) {
+        borrowCount.increment();
+        borrowNanos.add(nanos);
+        maxBorrowNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Connection wrap(Connection physical, StatementCache statements) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new PooledConnectionHandler(physical, statements, slowQueryLog));
+    }
+
+    /**
+     * Takes a connection back, rolling back any open transaction and putting
+     * back the read-only flag and isolation level the borrower changed
+     * (null when it left them alone).
+     */
+    void release(Connection physical, StatementCache statements, boolean broken,
+                 Boolean readOnly, Integer isolation) {
+        active.decrementAndGet();
+        try {
+            if (closed || broken || physical.isClosed()) {
+                closeQuietly(physical);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (readOnly != null && physical.isReadOnly() != readOnly) {
+                physical.setReadOnly(readOnly);
+            }
+            if (isolation != null && physical.getTransactionIsolation() != isolation) {
+                physical.setTransactionIsolation(isolation);
+            }
+            physical.clearWarnings();
+            synchronized (idle) {
+                idle.addFirst(new IdleConnection(physical, statements, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        synchronized (idle) {
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                IdleConnection candidate = it.next();
+                if (candidate.returnedAt < cutoff) {
+                    it.remove();
+                    evicted.increment();
+                    closeQuietly(candidate.connection);
+                }
+            }
+        }
+    }
+
+    public PoolStats getStats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        long borrows = borrowCount.sum();
+        double avgMillis = borrows == 0 ? 0 : borrowNanos.sum() / (double) borrows / 1_000_000.0;
+        return new PoolStats(active.get(), idleCount, waiters.get(), maxSize, borrows,
+                created.sum(), evicted.sum(), timeouts.sum(),
+                avgMillis, maxBorrowNanos.get() / 1_000_000.0,
+                statementHits.sum(), statementMisses.sum(), statementEvictions.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        if (slowQueryLog != null) {
+            slowQueryLog.close();
+        }
+        synchronized (idle) {
+            for (IdleConnection candidate : idle) {
+                closeQuietly(candidate.connection);
+            }
+            idle.clear();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static final class IdleConnection {
+        final Connection connection;
+        final StatementCache statements;
+        final long returnedAt;
+
+        IdleConnection(Connection connection, StatementCache statements, long returnedAt) {
+            this.connection = connection;
+            this.statements = statements;
+            this.returnedAt = returnedAt;
+        }
+    }
+
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private final StatementCache statements;
+        private final SlowQueryLog slowQueryLog;
+        private boolean returned;
+        private boolean broken;
+        private Boolean readOnlyOnBorrow;
+        private Integer isolationOnBorrow;
+
+        PooledConnectionHandler(Connection physical, StatementCache statements, SlowQueryLog slowQueryLog) {
+            this.physical = physical;
+            this.statements = statements;
+            this.slowQueryLog = slowQueryLog;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical, statements, broken, readOnlyOnBorrow, isolationOnBorrow);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(physical)) {
+                        return physical;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            switch (method.getName()) {
+                case "setReadOnly":
+                    if (readOnlyOnBorrow == null) {
+                        readOnlyOnBorrow = physical.isReadOnly();
+                    }
+                    break;
+                case "setTransactionIsolation":
+                    if (isolationOnBorrow == null) {
+                        isolationOnBorrow = physical.getTransactionIsolation();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                Object result = statements != null && method.getName().equals("prepareStatement")
+                        ? statements.prepare(method, args)
+                        : method.invoke(physical, args);
+                if (slowQueryLog != null && result instanceof Statement) {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return slowQueryLog.wrap((Statement) result, (String) args[0]);
+                        case "createStatement":
+                            return slowQueryLog.wrap((Statement) result, null);
+                        default:
+                            break;
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private boolean isFatal(SQLException e) {
+            String state = e.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+    }
+
+    public static final class PoolStats {
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final int maxSize;
+        private final long borrows;
+        private final long created;
+        private final long evicted;
+        private final long timeouts;
+        private final double avgBorrowMillis;
+        private final double maxBorrowMillis;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+
+        PoolStats(int active, int idle, int waiters, int maxSize, long borrows, long created,
+                  long evicted, long timeouts, double avgBorrowMillis, double maxBorrowMillis,
+                  long statementHits, long statementMisses, long statementEvictions) {
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.maxSize = maxSize;
+            this.borrows = borrows;
+            this.created = created;
+            this.evicted = evicted;
+            this.timeouts = timeouts;
+            this.avgBorrowMillis = avgBorrowMillis;
+            this.maxBorrowMillis = maxBorrowMillis;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getWaiters() { return waiters; }
+        public int getMaxSize() { return maxSize; }
+        public long getBorrows() { return borrows; }
+        public long getCreated() { return created; }
+        public long getEvicted() { return evicted; }
+        public long getTimeouts() { return timeouts; }
+        public double getAvgBorrowMillis() { return avgBorrowMillis; }
+        public double getMaxBorrowMillis() { return maxBorrowMillis; }
+        public long getStatementHits() { return statementHits; }
+        public long getStatementMisses() { return statementMisses; }
+        public long getStatementEvictions() { return statementEvictions; }
+
+        public double getStatementHitRate() {
+            long total = statementHits + statementMisses;
+            return total == 0 ? 0 : statementHits / (double) total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d waiters=%d max=%d borrows=%d created=%d evicted=%d timeouts=%d avgBorrow=%.3fms maxBorrow=%.3fms statementHits=%.1f%% (%d/%d, %d evicted)",
+                    active, idle, waiters, maxSize, borrows, created, evicted, timeouts,
+                    avgBorrowMillis, maxBorrowMillis, getStatementHitRate() * 100,
+                    statementHits, statementHits + statementMisses, statementEvictions);
+        }
+    }
+}
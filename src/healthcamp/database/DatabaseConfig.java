@@ -0,0 +1,204 @@
+package healthcamp.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Database settings resolved from, in increasing priority: built-in profile
+ * defaults, a properties file, {@code HEALTHCAMP_*} environment variables and
+ * {@code healthcamp.*} system properties.
+ * <p>
+ * Keys may be scoped to a profile as {@code profiles.<name>.<key>}; the active
+ * profile is chosen with the {@code profile} key ({@code HEALTHCAMP_PROFILE},
+ * {@code -Dhealthcamp.profile}). Driver properties are passed through from
+ * {@code db.property.<name>} keys.
+ */
+public final class DatabaseConfig {
+
+    public static final String PROFILE_MYSQL = "mysql";
+    public static final String PROFILE_EMBEDDED = "embedded";
+
+    private static final String DEFAULT_FILE = "healthcamp.properties";
+    private static final String DRIVER_PROPERTY_PREFIX = "db.property.";
+
+    private final Properties defaults;
+    private final Properties file;
+    private final Map<String, String> env;
+    private final Properties system;
+    private final String profile;
+
+    private DatabaseConfig(Properties file, Map<String, String> env, Properties system) {
+        this.defaults = builtInDefaults();
+        this.file = file;
+        this.env = env;
+        this.system = system;
+        String selected = explicit("profile");
+        this.profile = selected == null || selected.isBlank() ? PROFILE_MYSQL : selected.trim();
+    }
+
+    public static DatabaseConfig load() {
+        Properties system = System.getProperties();
+        Map<String, String> env = System.getenv();
+
+        String location = system.getProperty("healthcamp.config", env.get("HEALTHCAMP_CONFIG"));
+        Path path = Paths.get(location != null ? location : DEFAULT_FILE);
+        Properties file = new Properties();
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                file.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read configuration " + path + ": " + e.getMessage());
+            }
+        } else if (location != null) {
+            System.err.println("Configuration file not found: " + path);
+        }
+        return new DatabaseConfig(file, env, system);
+    }
+
+    public static DatabaseConfig of(Properties overrides) {
+        return new DatabaseConfig(overrides, Map.of(), new Properties());
+    }
+
+    private static Properties builtInDefaults() {
+        Properties p = new Properties();
+        p.setProperty("profiles.mysql.db.url", "jdbc:mysql://localhost:3306/healthcamp_db");
+        p.setProperty("profiles.mysql.db.user", "root");
+        p.setProperty("profiles.mysql.db.password", "");
+        p.setProperty("profiles.mysql.db.property.rewriteBatchedStatements", "true");
+        // parse and plan once per pooled connection; the pool keeps the statements open
+        p.setProperty("profiles.mysql.db.property.useServerPrepStmts", "true");
+
+        p.setProperty("profiles.embedded.db.url",
+                "jdbc:h2:./data/healthcamp;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+        p.setProperty("profiles.embedded.db.user", "sa");
+        p.setProperty("profiles.embedded.db.password", "");
+
+        p.setProperty("pool.maxSize", "8");
+        p.setProperty("pool.borrowTimeoutMs", "5000");
+        p.setProperty("pool.idleTimeoutMs", "300000");
+        p.setProperty("pool.statementCacheSize", "64");
+        return p;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public boolean isEmbedded() {
+        return getUrl().startsWith("jdbc:h2:");
+    }
+
+    public boolean isMySql() {
+        return getUrl().startsWith("jdbc:mysql:");
+    }
+
+    public String getUrl() {
+        return get("db.url", "");
+    }
+
+    public String getUser() {
+        return get("db.user", "");
+    }
+
+    public String getPassword() {
+        return get("db.password", "");
+    }
+
+    /**
+     * The value of {@code key}, taken from the highest-priority source that
+     * sets it; within a source the profile-scoped key wins over the plain one.
+     * An environment variable therefore beats any key in the file, scoped or not.
+     */
+    public String get(String key, String defaultValue) {
+        String scoped = "profiles." + profile + "." + key;
+        String value = system.getProperty("healthcamp." + scoped, system.getProperty("healthcamp." + key));
+        if (value == null) {
+            value = env(scoped);
+        }
+        if (value == null) {
+            value = env(key);
+        }
+        if (value == null) {
+            value = file.getProperty(scoped, file.getProperty(key));
+        }
+        if (value == null) {
+            value = defaults.getProperty(scoped, defaults.getProperty(key));
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * JDBC driver properties for the active profile, including the user and
+     * password, ready to pass to {@code DriverManager.getConnection}.
+     */
+    public Properties getDriverProperties() {
+        Properties props = new Properties();
+        String profilePrefix = "profiles." + profile + "." + DRIVER_PROPERTY_PREFIX;
+        collect(defaults, DRIVER_PROPERTY_PREFIX, props);
+        collect(defaults, profilePrefix, props);
+        collect(file, DRIVER_PROPERTY_PREFIX, props);
+        collect(file, profilePrefix, props);
+        collect(system, "healthcamp." + DRIVER_PROPERTY_PREFIX, props);
+        props.setProperty("user", getUser());
+        props.setProperty("password", getPassword());
+        return props;
+    }
+
+    private static void collect(Properties source, String prefix, Properties target) {
+        for (String name : source.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                target.setProperty(name.substring(prefix.length()), source.getProperty(name));
+            }
+        }
+    }
+
+    private String env(String key) {
+        return env.get("HEALTHCAMP_" + key.replace('.', '_').toUpperCase());
+    }
+
+    private String explicit(String key) {
+        String value = system.getProperty("healthcamp." + key);
+        if (value == null) {
+            value = env(key);
+        }
+        if (value == null) {
+            value = file.getProperty(key);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "profile=" + profile + ", url=" + getUrl() + ", user=" + getUser();
+    }
+}
@@ -1,57 +1,87 @@
 package healthcamp.database;
 
+import healthcamp.metrics.DaoMetrics;
 import java.sql.*;
 
 public class DatabaseManager {
- 
-   
-    private static final String URL = "jdbc:mysql://localhost:3306/healthcamp_db";
-    private static final String USER = "root";
-    private static final String PASSWORD = "sbimpn222";  
+    
+    private static volatile DatabaseConfig config;
+    private static volatile ConnectionPool pool;
     
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        long start = System.nanoTime();
+        Connection conn = getPool().borrow();
+        DaoMetrics.connectionAcquired(System.nanoTime() - start);
+        return conn;
+    }
+    
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseManager.class) {
+                p = pool;
+                if (p == null) {
+                    DatabaseConfig cfg = getConfig();
+                    p = new ConnectionPool(cfg.getUrl(), cfg.getDriverProperties(),
+                            cfg.getInt("pool.maxSize", 8),
+                            cfg.getLong("pool.borrowTimeoutMs", 5000),
+                            cfg.getLong("pool.idleTimeoutMs", 300_000),
+                            cfg.getInt("pool.statementCacheSize", 64));
+                    p.setSlowQueryLog(SlowQueryLog.fromConfig(cfg));
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+    
+    public static DatabaseConfig getConfig() {
+        DatabaseConfig c = config;
+        if (c == null) {
+            synchronized (DatabaseManager.class) {
+                c = config;
+                if (c == null) {
+                    c = DatabaseConfig.load();
+                    config = c;
+                }
+            }
+        }
+        return c;
+    }
+    
+    /**
+     * Replaces the active configuration, closing any pool opened with the old
+     * one. Used by tools and benchmarks that run against a non-default profile.
+     */
+    public static synchronized void configure(DatabaseConfig newConfig) {
+        shutdown();
+        config = newConfig;
     }
     
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+    
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+    
+    /**
+     * Applies pending {@link SchemaMigrator} migrations, then backfills anything they need.
+     * Throws {@link IllegalStateException} if the schema could not be brought up to date,
+     * so callers refuse to start rather than run against it.
+     */
     public static void initializeDatabase() {
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            
-            String createTable = """
-                CREATE TABLE IF NOT EXISTS patients (
-                    id INT PRIMARY KEY AUTO_INCREMENT,
-                    user_id INT NOT NULL,
-                    name VARCHAR(100) NOT NULL,
-                    age INT NOT NULL,
-                    gender VARCHAR(10),
-                    phone VARCHAR(15),
-                    symptoms TEXT,
-                    diagnosis VARCHAR(200),
-                    treatment TEXT,
-                    visit_date DATE NOT NULL,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
-                )
-            """;
-            
-            stmt.execute(createTable);
-            
-            String createUsersTable = """
-                CREATE TABLE IF NOT EXISTS users (
-                    id INT PRIMARY KEY AUTO_INCREMENT,
-                    username VARCHAR(50) NOT NULL UNIQUE,
-                    email VARCHAR(100) NOT NULL UNIQUE,
-                    password VARCHAR(255) NOT NULL,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                )
-            """;
-            
-            stmt.execute(createUsersTable);
-            System.out.println("Database initialized successfully");
+        try (Connection conn = getConnection()) {
+            new SchemaMigrator(conn, getConfig().isMySql()).migrate();
+            PatientStatsDAO.rebuildIfMissing(conn);
+            System.out.println("Database initialized successfully (" + getConfig() + ")");
             
         } catch (SQLException e) {
-            System.err.println("Database initialization failed: " + e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("Database initialization failed: " + e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,260 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replays {@link PatientJournal} entries into the database in batches, one
+ * transaction per batch. Each entry's key is stored in
+ * {@code patient_write_keys} in the same transaction as the row, so an
+ * entry that was applied but not yet marked synced (a crash or a lost
+ * reply between the two) is recognised on the next attempt and skipped.
+ * <p>
+ * Rows and keys go to the server as JDBC batches, so replaying a long
+ * offline stretch costs a few round trips per batch rather than one per
+ * row. A batch that fails for want of a connection is retried with
+ * exponential backoff and jitter. One the database rejects (bad data rather
+ * than a lost connection) is split into single entries, so the bad one is
+ * found, moved to the dead-letter file and skipped instead of blocking the
+ * rows behind it. Only its key is logged; the patient's details stay on disk.
+ */
+public final class JournalSyncWorker implements Runnable {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO patients (user_id, name, age, gender, phone, symptoms, diagnosis, treatment, visit_date)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private final PatientJournal journal;
+    private final Path deadLetter;
+    private final int batchSize;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public JournalSyncWorker(PatientJournal journal, Path deadLetter, int batchSize, long minBackoffMillis,
+                             long maxBackoffMillis) {
+        this.journal = journal;
+        this.deadLetter = deadLetter;
+        this.batchSize = batchSize;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public synchronized void start() {
+        thread = new Thread(this, "journal-sync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the worker and waits up to {@code timeoutMillis} for a batch in
+     * flight to commit and be marked synced. Returns whether it finished.
+     */
+    public synchronized boolean stop(long timeoutMillis) {
+        running = false;
+        if (thread == null) {
+            return true;
+        }
+        thread.interrupt();
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+
+    @Override
+    public void run() {
+        long backoff = 0;
+        while (running) {
+            try {
+                List<PatientJournal.Entry> batch = journal.nextBatch(batchSize, 1000);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                try {
+                    syncOrSplit(batch);
+                    backoff = 0;
+                } catch (SQLException e) {
+                    backoff = backoff == 0 ? minBackoffMillis : Math.min(maxBackoffMillis, backoff * 2);
+                    long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                    System.err.println("Patient journal: sync failed (" + describe(e) + "), "
+                            + journal.size() + " entries waiting, retrying in " + delay + " ms");
+                    Thread.sleep(delay);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Syncs the batch in one transaction. A batch the database rejects is
+     * retried entry by entry, as the write pipeline does, so only the bad
+     * entry is set aside. Any other failure is thrown for a retry later.
+     */
+    private void syncOrSplit(List<PatientJournal.Entry> batch) throws SQLException {
+        PatientRecord[] inserted;
+        try {
+            inserted = apply(batch);
+        } catch (SQLException e) {
+            if (!isRejected(e)) {
+                throw e;
+            }
+            if (batch.size() > 1) {
+                System.err.println("Patient journal: batch of " + batch.size() + " rejected (" + describe(e)
+                        + "), retrying entries one by one");
+                for (PatientJournal.Entry entry : batch) {
+                    syncOrSplit(List.of(entry));
+                }
+                return;
+            }
+            if (!deadLetter(batch.get(0), e)) {
+                throw e;
+            }
+            journal.markSynced(batch);
+            return;
+        }
+        journal.markSynced(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            if (inserted[i] != null) {
+                PatientDAO.firePatientSynced(batch.get(i).getUserId(), batch.get(i).getPendingId(), inserted[i]);
+            }
+        }
+    }
+
+    /** Moves a rejected entry to the dead-letter file; false if it could not be written and must stay queued. */
+    private boolean deadLetter(PatientJournal.Entry entry, SQLException cause) {
+        try {
+            PatientJournal.writeRejected(deadLetter, entry);
+            System.err.println("Patient journal: entry " + entry.getKey() + " rejected by the database ("
+                    + describe(cause) + "), moved to " + deadLetter);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Patient journal: cannot move rejected entry " + entry.getKey() + " to "
+                    + deadLetter + " (" + e.getMessage() + "), keeping it");
+            return false;
+        }
+    }
+
+    /**
+     * SQL state classes 22 (data exception) and 23 (constraint violation)
+     * will fail again on retry. A failed batch may carry the state only on
+     * the exception chained to it.
+     */
+    private static boolean isRejected(SQLException e) {
+        return rejectedState(e) != null;
+    }
+
+    private static String rejectedState(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            String state = next.getSQLState();
+            if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    /** A rejected row's message can quote the patient's data; its SQL state is enough. */
+    private static String describe(SQLException e) {
+        String state = rejectedState(e);
+        return state != null ? "SQL state " + state : e.getMessage();
+    }
+
+    /**
+     * Inserts the batch in one transaction with one round trip for the rows
+     * and one for their keys; an entry already applied gets a null slot in
+     * the result.
+     */
+    private PatientRecord[] apply(List<PatientJournal.Entry> batch) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            Set<String> applied = appliedKeys(conn, batch);
+            PatientStatsDAO.Delta stats = new PatientStatsDAO.Delta();
+            PatientRecord[] inserted = new PatientRecord[batch.size()];
+            List<Integer> pending = new ArrayList<>(batch.size());
+
+            try (PreparedStatement insert = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement key = conn.prepareStatement(
+                         "INSERT INTO patient_write_keys (write_key, patient_id) VALUES (?, ?)")) {
+                for (int i = 0; i < batch.size(); i++) {
+                    PatientJournal.Entry entry = batch.get(i);
+                    if (applied.contains(entry.getKey())) {
+                        continue;
+                    }
+                    PatientRecord patient = entry.getPatient();
+                    insert.setInt(1, entry.getUserId());
+                    insert.setString(2, patient.getName());
+                    insert.setInt(3, patient.getAge());
+                    insert.setString(4, patient.getGender());
+                    insert.setString(5, patient.getPhone());
+                    insert.setString(6, patient.getSymptoms());
+                    insert.setString(7, patient.getDiagnosis());
+                    insert.setString(8, patient.getTreatment());
+                    insert.setDate(9, Date.valueOf(patient.getVisitDate()));
+                    insert.addBatch();
+                    inserted[i] = patient;
+                    pending.add(i);
+                }
+                if (pending.isEmpty()) {
+                    return inserted;
+                }
+                insert.executeBatch();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    for (int i : pending) {
+                        if (!keys.next()) {
+                            throw new SQLException("Expected " + pending.size() + " generated ids for the journal batch");
+                        }
+                        PatientJournal.Entry entry = batch.get(i);
+                        inserted[i].setId(keys.getInt(1));
+                        key.setString(1, entry.getKey());
+                        key.setInt(2, inserted[i].getId());
+                        key.addBatch();
+                        stats.add(entry.getUserId(), inserted[i], 1);
+                    }
+                }
+                key.executeBatch();
+            }
+            stats.writeTo(conn);
+            conn.commit();
+            return inserted;
+        }
+    }
+
+    private static Set<String> appliedKeys(Connection conn, List<PatientJournal.Entry> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT write_key FROM patient_write_keys WHERE write_key IN (");
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        Set<String> applied = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < batch.size(); i++) {
+                pstmt.setString(i + 1, batch.get(i).getKey());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    applied.add(rs.getString(1));
+                }
+            }
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,230 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Offline-first front for a {@link PatientDAO}. New patients are written to
+ * the local {@link PatientJournal} and acknowledged at once, whether or not
+ * the database is reachable; {@link JournalSyncWorker} copies them over in
+ * the background. Until then they carry negative placeholder ids.
+ * <p>
+ * Reads merge the journal with the database: unsynced patients are listed
+ * first, ahead of the server rows, and are included in counts and searches.
+ * Updates and deletes go straight to the database, so a patient still
+ * waiting in the journal cannot be edited until it has synced.
+ * <p>
+ * The journal and worker are shared by every instance and started on first
+ * use; enabled with {@code offline.enabled=true}.
+ */
+public class OfflinePatientDAO extends PatientDAO {
+
+    private static final long SHUTDOWN_WAIT_MILLIS = 10_000;
+
+    private static PatientJournal journal;
+    private static JournalSyncWorker worker;
+
+    private final PatientDAO server;
+
+    public OfflinePatientDAO(PatientDAO server) {
+        this.server = server;
+        journal();
+    }
+
+    static synchronized PatientJournal journal() {
+        if (journal == null) {
+            DatabaseConfig config = DatabaseManager.getConfig();
+            try {
+                journal = new PatientJournal(Path.of(config.get("offline.journalPath", "data/patients.journal")),
+                        config.getInt("offline.journalSizeMb", 64) * 1024 * 1024,
+                        config.getLong("offline.flushIntervalMs", 50));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open the patient journal", e);
+            }
+            worker = new JournalSyncWorker(journal,
+                    Path.of(config.get("offline.deadLetterPath", "data/patients.rejected")),
+                    config.getInt("offline.batchSize", 200),
+                    config.getLong("offline.retryMinMs", 1000), config.getLong("offline.retryMaxMs", 60_000));
+            worker.start();
+        }
+        return journal;
+    }
+
+    /**
+     * Stops syncing, waiting for a batch in flight to be marked synced, and
+     * forces the journal to disk; unsynced entries are replayed on the next
+     * start. A worker still stuck in the database after the wait leaves the
+     * journal open rather than closed under it.
+     */
+    public static synchronized void shutdown() {
+        if (worker != null) {
+            boolean stopped = worker.stop(SHUTDOWN_WAIT_MILLIS);
+            worker = null;
+            if (!stopped) {
+                System.err.println("Patient journal: sync still running after " + SHUTDOWN_WAIT_MILLIS
+                        + " ms, leaving the journal open");
+                journal = null;
+                return;
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            journal = null;
+        }
+    }
+
+    /** Journals the patient, falling back to a direct insert only if the journal is full. */
+    @Override
+    public PatientRecord addPatient(PatientRecord patient, int userId) {
+        try {
+            if (journal().append(userId, patient)) {
+                firePatientAdded(userId, patient);
+                return patient;
+            }
+            System.err.println("Patient journal is full; writing directly to the database");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return server.addPatient(patient, userId);
+    }
+
+    @Override
+    public List<PatientRecord> getAllPatients(int userId) {
+        return merge(pending(userId, PatientSort.DEFAULT), server.getAllPatients(userId));
+    }
+
+    @Override
+    public void forEachPatient(int userId, Consumer<PatientRecord> action) {
+        journal().pending(userId).forEach(action);
+        server.forEachPatient(userId, action);
+    }
+
+    @Override
+    public List<PatientRecord> getPatientsAfter(int userId, PatientSort sort, PatientRecord after, int limit) {
+        if (after != null && after.getId() > 0) {
+            // pending rows all come before the server rows
+            return server.getPatientsAfter(userId, sort, after, limit);
+        }
+        List<PatientRecord> rest = pendingAfter(userId, sort, after);
+        List<PatientRecord> window = new ArrayList<>(rest.subList(0, Math.min(limit, rest.size())));
+        if (window.size() < limit) {
+            window.addAll(server.getPatientsAfter(userId, sort, null, limit - window.size()));
+        }
+        return window;
+    }
+
+    @Override
+    public PatientRecord findSeekPosition(int userId, PatientSort sort, PatientRecord after, int skip) {
+        if (skip < 1) {
+            throw new IllegalArgumentException("skip must be at least 1");
+        }
+        if (after != null && after.getId() > 0) {
+            return server.findSeekPosition(userId, sort, after, skip);
+        }
+        List<PatientRecord> rest = pendingAfter(userId, sort, after);
+        return skip <= rest.size() ? rest.get(skip - 1) : server.findSeekPosition(userId, sort, null, skip - rest.size());
+    }
+
+    @Override
+    public int countPatients(int userId) {
+        return journal().pending(userId).size() + server.countPatients(userId);
+    }
+
+    @Override
+    public List<PatientRecord> searchPatients(String keyword, int userId, int limit) {
+        List<PatientRecord> matches = new ArrayList<>();
+        String needle = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        for (PatientRecord patient : pending(userId, PatientSort.DEFAULT)) {
+            if (matches.size() < limit && matches(patient, needle)) {
+                matches.add(patient);
+            }
+        }
+        if (matches.size() < limit) {
+            matches.addAll(server.searchPatients(keyword, userId, limit - matches.size()));
+        }
+        return matches;
+    }
+
+    @Override
+    public PatientRecord updatePatient(PatientRecord patient) {
+        return patient.getId() > 0 ? server.updatePatient(patient) : null;
+    }
+
+    @Override
+    public PatientRecord deletePatient(int id) {
+        return id > 0 ? server.deletePatient(id) : null;
+    }
+
+    @Override
+    public int getTodayPatientCount(int userId) {
+        LocalDate today = LocalDate.now();
+        int pendingToday = 0;
+        for (PatientRecord patient : journal().pending(userId)) {
+            if (today.equals(patient.getVisitDate())) {
+                pendingToday++;
+            }
+        }
+        return pendingToday + server.getTodayPatientCount(userId);
+    }
+
+    /** Feeds the user's unsynced patients to {@code action}; does nothing when offline mode is off. */
+    static synchronized void forEachPending(int userId, Consumer<PatientRecord> action) {
+        if (journal != null) {
+            journal.pending(userId).forEach(action);
+        }
+    }
+
+    /** Number of journaled patients, for all users, not yet in the database. */
+    public int getUnsyncedCount() {
+        return journal().size();
+    }
+
+    private static List<PatientRecord> pending(int userId, PatientSort sort) {
+        List<PatientRecord> pending = journal().pending(userId);
+        pending.sort(sort.comparator());
+        return pending;
+    }
+
+    /** The unsynced patients listed after {@code after}: all of them when it is null, none once it has synced. */
+    private static List<PatientRecord> pendingAfter(int userId, PatientSort sort, PatientRecord after) {
+        List<PatientRecord> pending = pending(userId, sort);
+        if (after == null) {
+            return pending;
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            if (pending.get(i).getId() == after.getId()) {
+                return pending.subList(i + 1, pending.size());
+            }
+        }
+        return List.of();
+    }
+
+    private static boolean matches(PatientRecord patient, String needle) {
+        return contains(patient.getName(), needle) || contains(patient.getPhone(), needle)
+                || contains(patient.getSymptoms(), needle) || contains(patient.getDiagnosis(), needle);
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private static List<PatientRecord> merge(List<PatientRecord> pending, List<PatientRecord> rows) {
+        if (pending.isEmpty()) {
+            return rows;
+        }
+        List<PatientRecord> merged = new ArrayList<>(pending.size() + rows.size());
+        merged.addAll(pending);
+        merged.addAll(rows);
+        return merged;
+    }
+}
@@ -0,0 +1,27 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+
+/**
+ * Notified by {@link PatientDAO} after a patient write has been committed.
+ * Callbacks run on the writing thread and must be quick.
+ */
+public interface PatientChangeListener {
+
+    default void patientAdded(int userId, PatientRecord patient) {}
+
+    default void patientUpdated(PatientRecord patient) {}
+
+    default void patientDeleted(int patientId) {}
+
+    /**
+     * An insert held in the offline journal reached the database.
+     * {@code pendingId} is the placeholder id it was shown with until now.
+     */
+    default void patientSynced(int userId, int pendingId, PatientRecord patient) {
+        patientAdded(userId, patient);
+    }
+
+    /** Many rows for the user changed at once, e.g. after a bulk import. */
+    default void patientsReloaded(int userId) {}
+}
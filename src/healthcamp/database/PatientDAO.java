@@ -1,22 +1,75 @@
 package healthcamp.database;
 
+import healthcamp.metrics.DaoMetrics;
 import healthcamp.model.PatientRecord;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class PatientDAO {
     
-    public boolean addPatient(PatientRecord patient, int userId) {
+    public static final int DEFAULT_SEARCH_LIMIT = 500;
+    private static final int FULLTEXT_MIN_TOKEN = 3;
+    
+    private static final DaoMetrics.Operation ADD_OP = DaoMetrics.operation("patient.add");
+    private static final DaoMetrics.Operation GET_ALL_OP = DaoMetrics.operation("patient.getAll");
+    private static final DaoMetrics.Operation FOR_EACH_OP = DaoMetrics.operation("patient.forEach");
+    private static final DaoMetrics.Operation SEEK_OP = DaoMetrics.operation("patient.seek");
+    private static final DaoMetrics.Operation SEEK_POSITION_OP = DaoMetrics.operation("patient.seekPosition");
+    private static final DaoMetrics.Operation COUNT_OP = DaoMetrics.operation("patient.count");
+    private static final DaoMetrics.Operation SEARCH_OP = DaoMetrics.operation("patient.search");
+    private static final DaoMetrics.Operation UPDATE_OP = DaoMetrics.operation("patient.update");
+    private static final DaoMetrics.Operation DELETE_OP = DaoMetrics.operation("patient.delete");
+    private static final DaoMetrics.Operation TODAY_COUNT_OP = DaoMetrics.operation("patient.todayCount");
+    
+    private static final List<PatientChangeListener> listeners = new CopyOnWriteArrayList<>();
+    
+    public static void addChangeListener(PatientChangeListener listener) {
+        listeners.add(listener);
+    }
+    
+    public static void removeChangeListener(PatientChangeListener listener) {
+        listeners.remove(listener);
+    }
+    
+    static void firePatientsReloaded(int userId) {
+        for (PatientChangeListener listener : listeners) {
+            listener.patientsReloaded(userId);
+        }
+    }
+    
+    static void firePatientAdded(int userId, PatientRecord patient) {
+        for (PatientChangeListener listener : listeners) {
+            listener.patientAdded(userId, patient);
+        }
+    }
+    
+    static void firePatientSynced(int userId, int pendingId, PatientRecord patient) {
+        for (PatientChangeListener listener : listeners) {
+            listener.patientSynced(userId, pendingId, patient);
+        }
+    }
+    
+    /**
+     * Inserts the patient and returns it with its generated id set, or
+     * {@code null} if the insert failed. The daily statistics are updated in
+     * the same transaction.
+     */
+    @SuppressWarnings("try")
+    public PatientRecord addPatient(PatientRecord patient, int userId) {
         String sql = """
             INSERT INTO patients (user_id, name, age, gender, phone, symptoms, diagnosis, treatment, visit_date)
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
         
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (DaoMetrics.Timer timer = ADD_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
+            conn.setAutoCommit(false);
             pstmt.setInt(1, userId);
             pstmt.setString(2, patient.getName());
             pstmt.setInt(3, patient.getAge());
@@ -28,19 +81,30 @@ public class PatientDAO {
             pstmt.setDate(9, Date.valueOf(patient.getVisitDate()));
             
             pstmt.executeUpdate();
-            return true;
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    patient.setId(keys.getInt(1));
+                }
+            }
+            new PatientStatsDAO.Delta().add(userId, patient, 1).writeTo(conn);
+            conn.commit();
+            firePatientAdded(userId, patient);
+            return patient;
             
         } catch (SQLException e) {
+            ADD_OP.failed(e);
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
     
+    @SuppressWarnings("try")
     public List<PatientRecord> getAllPatients(int userId) {
         List<PatientRecord> patients = new ArrayList<>();
         String sql = "SELECT * FROM patients WHERE user_id = ? ORDER BY visit_date DESC, id DESC";
         
-        try (Connection conn = DatabaseManager.getConnection();
+        try (DaoMetrics.Timer timer = GET_ALL_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, userId);
@@ -51,52 +115,341 @@ public class PatientDAO {
             }
             
         } catch (SQLException e) {
+            GET_ALL_OP.failed(e);
             e.printStackTrace();
         }
         
         return patients;
     }
     
-    public List<PatientRecord> searchPatients(String keyword, int userId) {
-        List<PatientRecord> patients = new ArrayList<>();
+    /**
+     * Streams every patient of the user to {@code action} without collecting
+     * them into a list.
+     */
+    @SuppressWarnings("try")
+    public void forEachPatient(int userId, Consumer<PatientRecord> action) {
+        String sql = "SELECT * FROM patients WHERE user_id = ?";
+        
+        try (DaoMetrics.Timer timer = FOR_EACH_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setFetchSize(1000);
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(extractPatientFromResultSet(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            FOR_EACH_OP.failed(e);
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * The {@code limit} rows that follow {@code after} in {@code sort} order,
+     * or the first {@code limit} rows when {@code after} is null. Read with
+     * an index seek from that row, so a window deep in the list costs the
+     * same as the first one.
+     */
+    @SuppressWarnings("try")
+    public List<PatientRecord> getPatientsAfter(int userId, PatientSort sort, PatientRecord after, int limit) {
+        List<PatientRecord> patients = new ArrayList<>(Math.min(limit, 1000));
+        String sql = "SELECT * FROM patients WHERE user_id = ?" + seekClause(sort, after)
+            + " ORDER BY " + sort.orderBy("") + " LIMIT ?";
+        
+        try (DaoMetrics.Timer timer = SEEK_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            int i = setSeekParameters(pstmt, 2, sort, after);
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(extractPatientFromResultSet(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            SEEK_OP.failed(e);
+            e.printStackTrace();
+        }
+        
+        return patients;
+    }
+    
+    /**
+     * Up to {@code pageSize} patients in {@code sort} order following the
+     * cursor, or from the start when it is null, with a cursor for the next
+     * page if there is one. Built on {@link #getPatientsAfter}, so each page
+     * is an index seek whatever its depth.
+     */
+    public PatientPage getPatientsPage(int userId, PatientSort sort, PatientPage.Cursor after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        if (after != null && !after.getSort().equals(sort)) {
+            throw new IllegalArgumentException("cursor was made for " + after.getSort() + ", not " + sort);
+        }
+        // one extra row tells us whether another page exists
+        List<PatientRecord> patients = new ArrayList<>(
+                getPatientsAfter(userId, sort, after != null ? after.getPosition() : null, pageSize + 1));
+        PatientPage.Cursor next = null;
+        if (patients.size() > pageSize) {
+            patients.remove(pageSize);
+            next = PatientPage.Cursor.after(sort, patients.get(pageSize - 1));
+        }
+        return new PatientPage(patients, next);
+    }
+    
+    /**
+     * The row {@code skip} rows past {@code after} (or from the start when
+     * null), holding only its id and sort key, for use as the
+     * {@code after} of {@link #getPatientsAfter}. Only the narrow
+     * {@code (user_id, key, id)} index is read; the skipped rows are never
+     * fetched in full. Returns null if there are fewer rows.
+     */
+    @SuppressWarnings("try")
+    public PatientRecord findSeekPosition(int userId, PatientSort sort, PatientRecord after, int skip) {
+        if (skip < 1) {
+            throw new IllegalArgumentException("skip must be at least 1");
+        }
+        String column = sort.getKey().getColumn();
+        String sql = "SELECT id" + (sort.getKey() == PatientSort.Key.ID ? "" : ", " + column)
+            + " FROM patients WHERE user_id = ?" + seekClause(sort, after)
+            + " ORDER BY " + sort.orderBy("") + " LIMIT ?";
+        
+        try (DaoMetrics.Timer timer = SEEK_POSITION_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setFetchSize(1000);
+            pstmt.setInt(1, userId);
+            int i = setSeekParameters(pstmt, 2, sort, after);
+            pstmt.setInt(i, skip);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int rows = 0;
+                while (rs.next()) {
+                    if (++rows == skip) {
+                        PatientRecord position = new PatientRecord();
+                        position.setId(rs.getInt(1));
+                        switch (sort.getKey()) {
+                            case NAME -> position.setName(rs.getString(2));
+                            case AGE -> position.setAge(rs.getInt(2));
+                            case VISIT_DATE -> position.setVisitDate(rs.getDate(2).toLocalDate());
+                            case ID -> { }
+                        }
+                        return position;
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            SEEK_POSITION_OP.failed(e);
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /** {@code " AND <rows after after>"}, or nothing when {@code after} is null. */
+    private static String seekClause(PatientSort sort, PatientRecord after) {
+        if (after == null) {
+            return "";
+        }
+        String op = sort.isDescending() ? " < ?" : " > ?";
+        String column = sort.getKey().getColumn();
+        return sort.getKey() == PatientSort.Key.ID
+            ? " AND id" + op
+            : " AND (" + column + op + " OR (" + column + " = ? AND id" + op + "))";
+    }
+    
+    private static int setSeekParameters(PreparedStatement pstmt, int index, PatientSort sort,
+                                         PatientRecord after) throws SQLException {
+        if (after == null) {
+            return index;
+        }
+        if (sort.getKey() != PatientSort.Key.ID) {
+            setSortKey(pstmt, index++, sort.getKey(), after);
+            setSortKey(pstmt, index++, sort.getKey(), after);
+        }
+        pstmt.setInt(index++, after.getId());
+        return index;
+    }
+    
+    private static void setSortKey(PreparedStatement pstmt, int index, PatientSort.Key key,
+                                   PatientRecord row) throws SQLException {
+        switch (key) {
+            case NAME -> pstmt.setString(index, row.getName());
+            case AGE -> pstmt.setInt(index, row.getAge());
+            case VISIT_DATE -> pstmt.setDate(index, Date.valueOf(row.getVisitDate()));
+            case ID -> pstmt.setInt(index, row.getId());
+        }
+    }
+    
+    /** Number of patients the user has, summed from the daily statistics rollup. */
+    @SuppressWarnings("try")
+    public int countPatients(int userId) {
         String sql = """
-            SELECT * FROM patients 
-            WHERE user_id = ? AND (name LIKE ? OR phone LIKE ? OR symptoms LIKE ? OR diagnosis LIKE ?)
-            ORDER BY visit_date DESC
+            SELECT COALESCE(SUM(visits), 0) FROM patient_daily_stats
+            WHERE user_id = ? AND dimension = 'total'
         """;
         
-        try (Connection conn = DatabaseManager.getConnection();
+        try (DaoMetrics.Timer timer = COUNT_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            String searchTerm = "%" + keyword + "%";
             pstmt.setInt(1, userId);
-            pstmt.setString(2, searchTerm);
-            pstmt.setString(3, searchTerm);
-            pstmt.setString(4, searchTerm);
-            pstmt.setString(5, searchTerm);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
             
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                patients.add(extractPatientFromResultSet(rs));
+        } catch (SQLException e) {
+            COUNT_OP.failed(e);
+            e.printStackTrace();
+        }
+        
+        return 0;
+    }
+    
+    public List<PatientRecord> searchPatients(String keyword, int userId) {
+        return searchPatients(keyword, userId, DEFAULT_SEARCH_LIMIT);
+    }
+    
+    /**
+     * Ranked search over name, symptoms and diagnosis. On MySQL this uses the
+     * full-text index with prefix matching on every term. Phone-like keywords,
+     * which the full-text index cannot tokenize, and other databases use a
+     * substring LIKE over name, phone, symptoms and diagnosis, so part of a
+     * number still finds it; numbers starting with the keyword rank first.
+     */
+    @SuppressWarnings("try")
+    public List<PatientRecord> searchPatients(String keyword, int userId, int limit) {
+        List<PatientRecord> patients = new ArrayList<>();
+        String trimmed = keyword == null ? "" : keyword.trim();
+        if (trimmed.isEmpty()) {
+            return patients;
+        }
+        
+        boolean phoneLike = isPhoneLike(trimmed);
+        String fullTextQuery = DatabaseManager.getConfig().isMySql() && !phoneLike ? toBooleanQuery(trimmed) : null;
+        String sql;
+        if (fullTextQuery != null) {
+            sql = """
+                SELECT p.*, MATCH(name, symptoms, diagnosis) AGAINST (? IN BOOLEAN MODE) AS score
+                FROM patients p
+                WHERE user_id = ? AND MATCH(name, symptoms, diagnosis) AGAINST (? IN BOOLEAN MODE)
+                ORDER BY score DESC, visit_date DESC, id DESC LIMIT ?
+            """;
+        } else {
+            sql = """
+                SELECT * FROM patients 
+                WHERE user_id = ? AND (name LIKE ? OR phone LIKE ? OR symptoms LIKE ? OR diagnosis LIKE ?)
+                ORDER BY CASE WHEN %s LIKE ? THEN 0 ELSE 1 END, visit_date DESC, id DESC LIMIT ?
+            """.formatted(phoneLike ? "phone" : "name");
+        }
+        
+        try (DaoMetrics.Timer timer = SEARCH_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            if (fullTextQuery != null) {
+                pstmt.setString(1, fullTextQuery);
+                pstmt.setInt(2, userId);
+                pstmt.setString(3, fullTextQuery);
+                pstmt.setInt(4, limit);
+            } else {
+                String searchTerm = "%" + escapeLike(trimmed) + "%";
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, searchTerm);
+                pstmt.setString(3, searchTerm);
+                pstmt.setString(4, searchTerm);
+                pstmt.setString(5, searchTerm);
+                pstmt.setString(6, escapeLike(trimmed) + "%");
+                pstmt.setInt(7, limit);
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(extractPatientFromResultSet(rs));
+                }
             }
             
         } catch (SQLException e) {
+            SEARCH_OP.failed(e);
             e.printStackTrace();
         }
         
         return patients;
     }
     
-    public boolean updatePatient(PatientRecord patient) {
+    /**
+     * Whether {@link #searchPatients} matches {@code keyword} as a plain
+     * substring of name, phone, symptoms or diagnosis rather than through
+     * the full-text index's word prefixes.
+     */
+    public static boolean isSubstringSearch(String keyword) {
+        String trimmed = keyword == null ? "" : keyword.trim();
+        return !DatabaseManager.getConfig().isMySql() || isPhoneLike(trimmed) || toBooleanQuery(trimmed) == null;
+    }
+    
+    private static boolean isPhoneLike(String keyword) {
+        return keyword.length() >= 3 && keyword.matches("\\+?[0-9][0-9\\s-]*");
+    }
+    
+    /**
+     * Builds an InnoDB boolean-mode query requiring every term as a prefix,
+     * e.g. {@code "dry cou"} becomes {@code "+dry* +cou*"}. Returns null when a
+     * term is shorter than the full-text minimum token size, since the index
+     * cannot answer it.
+     */
+    static String toBooleanQuery(String keyword) {
+        StringBuilder query = new StringBuilder();
+        for (String term : keyword.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (term.length() < FULLTEXT_MIN_TOKEN) {
+                return null;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append('+').append(term).append('*');
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    /**
+     * Writes the patient's fields and returns the record if a row was
+     * changed, or {@code null} if the update failed or the id does not exist.
+     */
+    @SuppressWarnings("try")
+    public PatientRecord updatePatient(PatientRecord patient) {
         String sql = """
             UPDATE patients 
             SET name=?, age=?, gender=?, phone=?, symptoms=?, diagnosis=?, treatment=?, visit_date=?
             WHERE id=?
         """;
         
-        try (Connection conn = DatabaseManager.getConnection();
+        try (DaoMetrics.Timer timer = UPDATE_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
+            conn.setAutoCommit(false);
+            LockedRow previous = lockRow(conn, patient.getId());
+            if (previous == null) {
+                return null;
+            }
             pstmt.setString(1, patient.getName());
             pstmt.setInt(2, patient.getAge());
             pstmt.setString(3, patient.getGender());
@@ -107,35 +460,90 @@ public class PatientDAO {
             pstmt.setDate(8, Date.valueOf(patient.getVisitDate()));
             pstmt.setInt(9, patient.getId());
             
-            pstmt.executeUpdate();
-            return true;
+            if (pstmt.executeUpdate() == 0) {
+                return null;
+            }
+            new PatientStatsDAO.Delta()
+                .add(previous.userId, previous.patient, -1)
+                .add(previous.userId, patient, 1)
+                .writeTo(conn);
+            conn.commit();
+            for (PatientChangeListener listener : listeners) {
+                listener.patientUpdated(patient);
+            }
+            return patient;
             
         } catch (SQLException e) {
+            UPDATE_OP.failed(e);
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
     
-    public boolean deletePatient(int id) {
+    /** Returns the record as it was before the delete, or null when no row matched or it failed. */
+    @SuppressWarnings("try")
+    public PatientRecord deletePatient(int id) {
         String sql = "DELETE FROM patients WHERE id=?";
         
-        try (Connection conn = DatabaseManager.getConnection();
+        try (DaoMetrics.Timer timer = DELETE_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
+            conn.setAutoCommit(false);
+            LockedRow previous = lockRow(conn, id);
             pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-            return true;
+            if (previous == null || pstmt.executeUpdate() == 0) {
+                return null;
+            }
+            new PatientStatsDAO.Delta().add(previous.userId, previous.patient, -1).writeTo(conn);
+            conn.commit();
+            for (PatientChangeListener listener : listeners) {
+                listener.patientDeleted(id);
+            }
+            return previous.patient;
             
         } catch (SQLException e) {
+            DELETE_OP.failed(e);
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
     
+    /**
+     * Reads the row as it stands and locks it, so the decrement written for
+     * an update or delete matches what was counted, and a delete can hand
+     * back what it removed.
+     */
+    private LockedRow lockRow(Connection conn, int id) throws SQLException {
+        String sql = "SELECT * FROM patients WHERE id = ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new LockedRow(rs.getInt("user_id"), extractPatientFromResultSet(rs)) : null;
+            }
+        }
+    }
+    
+    private static final class LockedRow {
+        final int userId;
+        final PatientRecord patient;
+        
+        LockedRow(int userId, PatientRecord patient) {
+            this.userId = userId;
+            this.patient = patient;
+        }
+    }
+    
+    /** Served from the daily statistics rollup rather than counting patient rows. */
+    @SuppressWarnings("try")
     public int getTodayPatientCount(int userId) {
-        String sql = "SELECT COUNT(*) FROM patients WHERE user_id = ? AND visit_date = CURDATE()";
+        String sql = """
+            SELECT COALESCE(SUM(visits), 0) FROM patient_daily_stats
+            WHERE user_id = ? AND stat_date = CURDATE() AND dimension = 'total'
+        """;
         
-        try (Connection conn = DatabaseManager.getConnection();
+        try (DaoMetrics.Timer timer = TODAY_COUNT_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, userId);
@@ -146,13 +554,15 @@ public class PatientDAO {
             }
             
         } catch (SQLException e) {
+            TODAY_COUNT_OP.failed(e);
             e.printStackTrace();
         }
         
         return 0;
     }
     
-    private PatientRecord extractPatientFromResultSet(ResultSet rs) throws SQLException {
+    /** Package-private so {@code PatientDAOBenchmark} can time the mapping alone. */
+    PatientRecord extractPatientFromResultSet(ResultSet rs) throws SQLException {
         PatientRecord patient = new PatientRecord();
         patient.setId(rs.getInt("id"));
         patient.setName(rs.getString("name"));
@@ -163,6 +573,8 @@ public class PatientDAO {
         patient.setDiagnosis(rs.getString("diagnosis"));
         patient.setTreatment(rs.getString("treatment"));
         patient.setVisitDate(rs.getDate("visit_date").toLocalDate());
+        DaoMetrics.row(16 + DaoMetrics.bytes(patient.getName(), patient.getGender(), patient.getPhone(),
+                patient.getSymptoms(), patient.getDiagnosis(), patient.getTreatment()));
         return patient;
     }
 }
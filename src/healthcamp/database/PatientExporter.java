@@ -0,0 +1,382 @@
+package healthcamp.database;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams patient rows straight from a forward-only result set into a CSV or
+ * newline-delimited JSON file. Rows are never collected, so memory use stays
+ * flat regardless of how many records are exported.
+ */
+public class PatientExporter {
+
+    public enum Format { CSV, NDJSON }
+
+    public interface ProgressListener {
+        void onProgress(long rows, long bytes);
+    }
+
+    private static final String[] COLUMNS = {
+        "id", "user_id", "name", "age", "gender", "phone", "symptoms", "diagnosis", "treatment", "visit_date"
+    };
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Format format;
+    private Integer userId;
+    private LocalDate from;
+    private LocalDate to;
+    private boolean gzip;
+    private int fetchSize = 1000;
+    private long progressInterval = 10_000;
+    private ProgressListener progressListener;
+
+    public PatientExporter(Format format) {
+        this.format = format;
+    }
+
+    public PatientExporter setUserId(Integer userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public PatientExporter setDateRange(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public PatientExporter setGzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
+    public PatientExporter setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public PatientExporter setProgressListener(ProgressListener listener, long everyRows) {
+        this.progressListener = listener;
+        this.progressInterval = Math.max(1, everyRows);
+        return this;
+    }
+
+    /**
+     * Writes the export to {@code target}. The file is written under a
+     * temporary name and moved into place only when complete.
+     */
+    public ExportResult export(Path target) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        List<Object> params = new ArrayList<>();
+        String sql = buildQuery(params);
+
+        long rows = 0;
+        ChannelWriter writer;
+        try (FileChannel file = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            GZIPOutputStream compressor = gzip
+                    ? new GZIPOutputStream(Channels.newOutputStream(file), BUFFER_SIZE)
+                    : null;
+            WritableByteChannel channel = compressor != null ? Channels.newChannel(compressor) : file;
+            writer = new ChannelWriter(channel);
+
+            pstmt.setFetchSize(streamingFetchSize());
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+
+            if (format == Format.CSV) {
+                writer.append(String.join(",", COLUMNS)).append('\n');
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (format == Format.CSV) {
+                        writeCsvRow(rs, writer);
+                    } else {
+                        writeJsonRow(rs, writer);
+                    }
+                    rows++;
+                    if (progressListener != null && rows % progressInterval == 0) {
+                        progressListener.onProgress(rows, writer.bytesWritten());
+                    }
+                }
+            }
+            writer.flush();
+            if (compressor != null) {
+                // finish() writes the gzip trailer without closing the file channel
+                compressor.finish();
+                compressor.flush();
+            }
+            file.force(true);
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (progressListener != null) {
+            progressListener.onProgress(rows, writer.bytesWritten());
+        }
+        return new ExportResult(rows, Files.size(target), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private String buildQuery(List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(String.join(", ", COLUMNS))
+                .append(" FROM patients WHERE 1 = 1");
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            params.add(userId);
+        }
+        if (from != null) {
+            sql.append(" AND visit_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND visit_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        return sql.append(" ORDER BY id").toString();
+    }
+
+    private int streamingFetchSize() {
+        DatabaseConfig config = DatabaseManager.getConfig();
+        if (config.isMySql()
+                && !"true".equalsIgnoreCase(config.getDriverProperties().getProperty("useCursorFetch"))) {
+            // Connector/J only streams row by row with this sentinel unless cursor fetch is enabled
+            return Integer.MIN_VALUE;
+        }
+        return fetchSize;
+    }
+
+    private static void writeCsvRow(ResultSet rs, ChannelWriter out) throws SQLException, IOException {
+        for (int i = 1; i <= COLUMNS.length; i++) {
+            if (i > 1) {
+                out.append(',');
+            }
+            String value = rs.getString(i);
+            if (value != null) {
+                csvEscape(value, out);
+            }
+        }
+        out.append('\n');
+    }
+
+    private static void csvEscape(String value, ChannelWriter out) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void writeJsonRow(ResultSet rs, ChannelWriter out) throws SQLException, IOException {
+        out.append('{');
+        for (int i = 1; i <= COLUMNS.length; i++) {
+            if (i > 1) {
+                out.append(',');
+            }
+            out.append('"').append(COLUMNS[i - 1]).append("\":");
+            String column = COLUMNS[i - 1];
+            if (column.equals("id") || column.equals("user_id") || column.equals("age")) {
+                out.append(Integer.toString(rs.getInt(i)));
+            } else {
+                String value = rs.getString(i);
+                if (value == null) {
+                    out.append("null");
+                } else {
+                    jsonEscape(value, out);
+                }
+            }
+        }
+        out.append("}\n");
+    }
+
+    private static void jsonEscape(String value, ChannelWriter out) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /** UTF-8 encodes into a reusable direct buffer and drains it to the channel when full. */
+    private static final class ChannelWriter {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+        private long written;
+
+        ChannelWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        ChannelWriter append(char c) throws IOException {
+            if (!chars.hasRemaining()) {
+                encodePending();
+            }
+            chars.put(c);
+            return this;
+        }
+
+        ChannelWriter append(String s) throws IOException {
+            int offset = 0;
+            while (offset < s.length()) {
+                if (!chars.hasRemaining()) {
+                    encodePending();
+                }
+                int n = Math.min(chars.remaining(), s.length() - offset);
+                chars.put(s, offset, offset + n);
+                offset += n;
+            }
+            return this;
+        }
+
+        private void encodePending() throws IOException {
+            chars.flip();
+            while (encoder.encode(chars, bytes, false).isOverflow()) {
+                drain();
+            }
+            // keep a trailing high surrogate for the next round
+            chars.compact();
+        }
+
+        void flush() throws IOException {
+            chars.flip();
+            while (encoder.encode(chars, bytes, true).isOverflow()) {
+                drain();
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            chars.clear();
+            drain();
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                written += channel.write(bytes);
+            }
+            bytes.clear();
+        }
+
+        long bytesWritten() {
+            return written + bytes.position() + chars.position();
+        }
+    }
+
+    public static final class ExportResult {
+        private final long rows;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        ExportResult(long rows, long bytes, long elapsedMillis) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRows() { return rows; }
+        public long getBytes() { return bytes; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows, %d bytes in %d ms", rows, bytes, elapsedMillis);
+        }
+    }
+
+    /**
+     * Headless entry point for scheduled exports:
+     * {@code PatientExporter <output> [--format csv|ndjson] [--user id] [--from yyyy-mm-dd] [--to yyyy-mm-dd] [--gzip]}.
+     * A {@code .gz} output name implies {@code --gzip}.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: PatientExporter <output> [--format csv|ndjson] [--user id] "
+                    + "[--from yyyy-mm-dd] [--to yyyy-mm-dd] [--gzip]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[0]);
+        String name = output.getFileName().toString().toLowerCase();
+        Format format = name.contains(".json") ? Format.NDJSON : Format.CSV;
+        boolean gzip = name.endsWith(".gz");
+        Integer user = null;
+        LocalDate from = null;
+        LocalDate to = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format": format = Format.valueOf(args[++i].toUpperCase()); break;
+                case "--user": user = Integer.valueOf(args[++i]); break;
+                case "--from": from = LocalDate.parse(args[++i]); break;
+                case "--to": to = LocalDate.parse(args[++i]); break;
+                case "--gzip": gzip = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        ExportResult result = new PatientExporter(format)
+                .setUserId(user)
+                .setDateRange(from, to)
+                .setGzip(gzip)
+                .setProgressListener((rows, bytes) -> System.out.printf("%,d rows, %,d bytes%n", rows, bytes), 100_000)
+                .export(output);
+        System.out.println("Exported " + result + " to " + output);
+        DatabaseManager.shutdown();
+    }
+}
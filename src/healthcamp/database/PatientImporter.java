@@ -0,0 +1,383 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads patient records from a CSV file using JDBC batches inside larger
+ * transactions. Rows that fail validation or insertion are reported
+ * individually and the rest of the file is still imported.
+ * <p>
+ * The expected header matches the CSV export; {@code name} and {@code age}
+ * are required, {@code id} and {@code user_id} columns are ignored.
+ */
+public class PatientImporter {
+
+    public interface ProgressListener {
+        void onProgress(long rowsRead, long bytesRead, double rowsPerSecond);
+    }
+
+    private static final String INSERT_SQL = """
+        INSERT INTO patients (user_id, name, age, gender, phone, symptoms, diagnosis, treatment, visit_date)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+    private static final int MAX_STORED_ERRORS = 10_000;
+
+    private final int userId;
+    private int batchSize = 500;
+    private int commitSize = 5000;
+    private ProgressListener progressListener;
+
+    public PatientImporter(int userId) {
+        this.userId = userId;
+    }
+
+    public PatientImporter setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /** Rows per transaction; rounded up to a whole number of batches. */
+    public PatientImporter setCommitSize(int commitSize) {
+        this.commitSize = Math.max(1, commitSize);
+        return this;
+    }
+
+    public PatientImporter setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    public ImportResult importFile(Path file) throws IOException, SQLException {
+        InputStream raw = Files.newInputStream(file);
+        CountingInputStream counted = new CountingInputStream(raw);
+        InputStream in = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")
+                ? new GZIPInputStream(counted, 64 * 1024)
+                : counted;
+        try (CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return importCsv(reader, counted);
+        } finally {
+            PatientDAO.firePatientsReloaded(userId);
+        }
+    }
+
+    private ImportResult importCsv(CsvReader reader, CountingInputStream counted) throws IOException, SQLException {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult();
+
+        List<String> header = reader.next();
+        if (header == null) {
+            return result.finish(start);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("age")) {
+            throw new IOException("CSV header must contain at least 'name' and 'age' columns");
+        }
+
+        int commitEvery = ((commitSize + batchSize - 1) / batchSize) * batchSize;
+        List<PendingRow> uncommitted = new ArrayList<>(commitEvery);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            conn.setAutoCommit(false);
+
+            List<String> fields;
+            int inBatch = 0;
+            while ((fields = reader.next()) != null) {
+                long line = reader.getRecordLine();
+                if (isBlank(fields)) {
+                    continue;
+                }
+                result.rowsRead++;
+
+                PatientRecord record;
+                try {
+                    record = parse(fields, columns);
+                } catch (IllegalArgumentException e) {
+                    result.addError(line, e.getMessage());
+                    continue;
+                }
+
+                bind(pstmt, record);
+                pstmt.addBatch();
+                uncommitted.add(new PendingRow(line, record));
+                inBatch++;
+
+                if (inBatch == batchSize) {
+                    inBatch = 0;
+                    if (!executeBatch(pstmt)) {
+                        recover(conn, pstmt, uncommitted, result);
+                    } else if (uncommitted.size() >= commitEvery) {
+                        commit(conn, uncommitted, result);
+                    }
+                    reportProgress(result, counted, start);
+                }
+            }
+
+            if (inBatch > 0 && !executeBatch(pstmt)) {
+                recover(conn, pstmt, uncommitted, result);
+            } else {
+                commit(conn, uncommitted, result);
+            }
+            reportProgress(result, counted, start);
+        }
+        return result.finish(start);
+    }
+
+    private static boolean executeBatch(PreparedStatement pstmt) {
+        try {
+            pstmt.executeBatch();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Adds the rows to the daily statistics and commits them together. */
+    private void commit(Connection conn, List<PendingRow> uncommitted, ImportResult result) throws SQLException {
+        PatientStatsDAO.Delta stats = new PatientStatsDAO.Delta();
+        for (PendingRow row : uncommitted) {
+            stats.add(userId, row.record, 1);
+        }
+        stats.writeTo(conn);
+        conn.commit();
+        result.imported += uncommitted.size();
+        uncommitted.clear();
+    }
+
+    /**
+     * A batch failed. Rolls back the open transaction and re-inserts its rows
+     * one at a time so only the offending rows are rejected.
+     */
+    private void recover(Connection conn, PreparedStatement pstmt, List<PendingRow> uncommitted,
+                         ImportResult result) throws SQLException {
+        pstmt.clearBatch();
+        conn.rollback();
+        PatientStatsDAO.Delta stats = new PatientStatsDAO.Delta();
+        for (PendingRow row : uncommitted) {
+            try {
+                bind(pstmt, row.record);
+                pstmt.executeUpdate();
+                stats.add(userId, row.record, 1);
+                result.imported++;
+            } catch (SQLException e) {
+                String message = String.valueOf(e.getMessage());
+                int eol = message.indexOf('\n');
+                result.addError(row.line, eol > 0 ? message.substring(0, eol).trim() : message);
+            }
+        }
+        stats.writeTo(conn);
+        conn.commit();
+        uncommitted.clear();
+    }
+
+    private void bind(PreparedStatement pstmt, PatientRecord record) throws SQLException {
+        pstmt.setInt(1, userId);
+        pstmt.setString(2, record.getName());
+        pstmt.setInt(3, record.getAge());
+        pstmt.setString(4, record.getGender());
+        pstmt.setString(5, record.getPhone());
+        pstmt.setString(6, record.getSymptoms());
+        pstmt.setString(7, record.getDiagnosis());
+        pstmt.setString(8, record.getTreatment());
+        pstmt.setDate(9, Date.valueOf(record.getVisitDate()));
+    }
+
+    private static PatientRecord parse(List<String> fields, Map<String, Integer> columns) {
+        String name = field(fields, columns, "name");
+        if (name == null) {
+            throw new IllegalArgumentException("name is required");
+        }
+        String ageText = field(fields, columns, "age");
+        int age;
+        try {
+            age = Integer.parseInt(ageText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid age '" + ageText + "'");
+        }
+        if (age < 0 || age > 150) {
+            throw new IllegalArgumentException("age out of range: " + age);
+        }
+
+        LocalDate visitDate = LocalDate.now();
+        String dateText = field(fields, columns, "visit_date");
+        if (dateText != null) {
+            try {
+                visitDate = LocalDate.parse(dateText);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("invalid visit_date '" + dateText + "'");
+            }
+        }
+
+        return new PatientRecord(
+            limit(name, 100, "name"),
+            age,
+            limit(field(fields, columns, "gender"), 10, "gender"),
+            limit(field(fields, columns, "phone"), 15, "phone"),
+            field(fields, columns, "symptoms"),
+            limit(field(fields, columns, "diagnosis"), 200, "diagnosis"),
+            field(fields, columns, "treatment"),
+            visitDate
+        );
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String limit(String value, int max, String column) {
+        if (value != null && value.length() > max) {
+            throw new IllegalArgumentException(column + " longer than " + max + " characters");
+        }
+        return value;
+    }
+
+    private static boolean isBlank(List<String> fields) {
+        for (String f : fields) {
+            if (!f.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reportProgress(ImportResult result, CountingInputStream counted, long start) {
+        if (progressListener != null) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            progressListener.onProgress(result.rowsRead, counted.count,
+                    seconds > 0 ? result.rowsRead / seconds : 0);
+        }
+    }
+
+    private static final class PendingRow {
+        final long line;
+        final PatientRecord record;
+
+        PendingRow(long line, PatientRecord record) {
+            this.line = line;
+            this.record = record;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    public static final class RowError {
+        private final long line;
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    public static final class ImportResult {
+        private long rowsRead;
+        private long imported;
+        private long failed;
+        private long elapsedMillis;
+        private final List<RowError> errors = new ArrayList<>();
+
+        void addError(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_STORED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+
+        ImportResult finish(long startNanos) {
+            elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            return this;
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getImported() { return imported; }
+        public long getFailed() { return failed; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        /** Row errors in file order; only the first 10,000 are kept. */
+        public List<RowError> getErrors() { return errors; }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? rowsRead : rowsRead * 1000.0 / elapsedMillis;
+        }
+
+        public void writeErrorReport(Path target) throws IOException {
+            try (Writer out = new BufferedWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8))) {
+                out.write("line,error\n");
+                for (RowError error : errors) {
+                    out.write(error.line + ",\"" + error.message.replace("\"", "\"\"") + "\"\n");
+                }
+                if (failed > errors.size()) {
+                    out.write(",\"" + (failed - errors.size()) + " further errors not recorded\"\n");
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d imported, %d failed in %d ms (%.0f rows/s)",
+                    rowsRead, imported, failed, elapsedMillis, getRowsPerSecond());
+        }
+    }
+}
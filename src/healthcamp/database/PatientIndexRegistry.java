@@ -0,0 +1,132 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Holds one {@link PatientSearchIndex} per user. An index is built from the
+ * database the first time it is needed and then kept current from
+ * {@link PatientDAO} change notifications. Changes that arrive while an
+ * index is still being built are held and replayed onto it before it is
+ * registered, so a patient added during the build is not missed.
+ */
+public final class PatientIndexRegistry implements PatientChangeListener {
+
+    private static final PatientIndexRegistry INSTANCE = new PatientIndexRegistry();
+
+    static {
+        PatientDAO.addChangeListener(INSTANCE);
+    }
+
+    private final Map<Integer, PatientSearchIndex> indexes = new ConcurrentHashMap<>();
+    // changes seen while a user's index is being built; guarded by changeLock
+    private final Map<Integer, List<Consumer<PatientSearchIndex>>> building = new HashMap<>();
+    private final Object changeLock = new Object();
+    private final PatientDAO patientDAO = new PatientDAO();
+
+    private PatientIndexRegistry() {}
+
+    public static PatientSearchIndex forUser(int userId) {
+        PatientSearchIndex index = INSTANCE.indexes.get(userId);
+        return index != null ? index : INSTANCE.build(userId);
+    }
+
+    /** Drops the user's index; it is rebuilt on the next lookup. */
+    public static void invalidate(int userId) {
+        synchronized (INSTANCE.changeLock) {
+            INSTANCE.indexes.remove(userId);
+            // a build already reading is stale; it still answers its caller but is not kept
+            INSTANCE.building.remove(userId);
+        }
+    }
+
+    private synchronized PatientSearchIndex build(int userId) {
+        PatientSearchIndex existing = indexes.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (changeLock) {
+            building.put(userId, new ArrayList<>());
+        }
+        long start = System.nanoTime();
+        PatientSearchIndex index = new PatientSearchIndex();
+        patientDAO.forEachPatient(userId, index::put);
+        OfflinePatientDAO.forEachPending(userId, index::put);
+        int replayed = 0;
+        synchronized (changeLock) {
+            List<Consumer<PatientSearchIndex>> changes = building.remove(userId);
+            if (changes != null) {
+                for (Consumer<PatientSearchIndex> change : changes) {
+                    change.accept(index);
+                }
+                replayed = changes.size();
+                indexes.put(userId, index);
+            }
+        }
+        System.out.printf("Built search index for user %d: %d patients (%d changes replayed) in %d ms%n",
+                userId, index.size(), replayed, (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    private void apply(int userId, Consumer<PatientSearchIndex> change) {
+        synchronized (changeLock) {
+            PatientSearchIndex index = indexes.get(userId);
+            if (index != null) {
+                change.accept(index);
+            } else {
+                List<Consumer<PatientSearchIndex>> changes = building.get(userId);
+                if (changes != null) {
+                    changes.add(change);
+                }
+            }
+        }
+    }
+
+    private void applyToAll(Consumer<PatientSearchIndex> change) {
+        synchronized (changeLock) {
+            for (PatientSearchIndex index : indexes.values()) {
+                change.accept(index);
+            }
+            for (List<Consumer<PatientSearchIndex>> changes : building.values()) {
+                changes.add(change);
+            }
+        }
+    }
+
+    @Override
+    public void patientAdded(int userId, PatientRecord patient) {
+        apply(userId, index -> index.put(patient));
+    }
+
+    @Override
+    public void patientSynced(int userId, int pendingId, PatientRecord patient) {
+        apply(userId, index -> {
+            index.remove(pendingId);
+            index.put(patient);
+        });
+    }
+
+    @Override
+    public void patientUpdated(PatientRecord patient) {
+        applyToAll(index -> {
+            if (index.contains(patient.getId())) {
+                index.put(patient);
+            }
+        });
+    }
+
+    @Override
+    public void patientDeleted(int patientId) {
+        applyToAll(index -> index.remove(patientId));
+    }
+
+    @Override
+    public void patientsReloaded(int userId) {
+        invalidate(userId);
+    }
+}
@@ -0,0 +1,327 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped log of patient inserts that have not reached
+ * the database yet. An append is acknowledged as soon as it is in the
+ * mapped file, which survives a crash of the application; the file is
+ * forced to disk every {@code flushIntervalMs}, so a power loss can lose at
+ * most that much. {@link JournalSyncWorker} replays entries in order and
+ * marks them synced.
+ * <p>
+ * Layout: a 16-byte header (magic, version, synced offset) followed by
+ * records of {@code [length][crc32c][payload]}. A zero length ends the log;
+ * a record whose checksum does not match is a torn write and also ends it.
+ * Once every entry is synced and the file is full, writing starts again at
+ * the header. Each entry carries a random key, so replaying one that was
+ * already applied is detected by the database and skipped.
+ */
+public final class PatientJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x48434a31; // "HCJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int SYNCED_OFFSET_AT = 8;
+    private static final int RECORD_HEADER = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final Deque<Entry> unsynced = new ArrayDeque<>();
+    private final ScheduledExecutorService flusher;
+    private int writePosition;
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo;
+    private int nextPendingId = -1;
+    private boolean closed;
+
+    /** One journaled insert. The patient's id is a negative placeholder until it is synced. */
+    public static final class Entry {
+        private final String key;
+        private final int userId;
+        private final PatientRecord patient;
+        private final int end;
+
+        Entry(String key, int userId, PatientRecord patient, int end) {
+            this.key = key;
+            this.userId = userId;
+            this.patient = patient;
+            this.end = end;
+        }
+
+        public String getKey() { return key; }
+        public int getUserId() { return userId; }
+        public int getPendingId() { return patient.getId(); }
+
+        /** A copy, so callers cannot change what will be replayed. */
+        public PatientRecord getPatient() { return new PatientRecord(patient); }
+    }
+
+    public PatientJournal(Path path, int capacity, long flushIntervalMs) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.capacity = capacity;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(SYNCED_OFFSET_AT, HEADER);
+            buffer.putInt(HEADER, 0);
+            buffer.force();
+        }
+        recover();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Finds the end of the log and reloads the entries after the synced offset. */
+    private void recover() throws IOException {
+        int synced = (int) Math.min(buffer.getLong(SYNCED_OFFSET_AT), capacity);
+        int position = HEADER;
+        while (position + RECORD_HEADER <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER + length > capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER, payload);
+            if (checksum(payload) != buffer.getInt(position + 4)) {
+                System.err.println("Patient journal: torn record at offset " + position + ", discarding the rest");
+                break;
+            }
+            int end = position + RECORD_HEADER + length;
+            if (position >= synced) {
+                unsynced.add(decode(payload, end));
+            }
+            position = end;
+        }
+        writePosition = position;
+        if (synced > writePosition) {
+            buffer.putLong(SYNCED_OFFSET_AT, writePosition);
+        }
+        if (!unsynced.isEmpty()) {
+            System.out.println("Patient journal: " + unsynced.size() + " unsynced entries recovered");
+        }
+    }
+
+    /**
+     * Appends the insert and gives {@code patient} a negative placeholder id.
+     * Returns {@code false} if the journal is full of unsynced entries.
+     */
+    public synchronized boolean append(int userId, PatientRecord patient) throws IOException {
+        if (closed) {
+            throw new IOException("Patient journal is closed");
+        }
+        String key = UUID.randomUUID().toString();
+        byte[] payload = encode(key, userId, patient);
+        int needed = RECORD_HEADER + payload.length;
+        if (writePosition + needed > capacity) {
+            if (!unsynced.isEmpty() || HEADER + needed > capacity) {
+                return false;
+            }
+            // everything is synced: start over at the front of the file
+            buffer.putLong(SYNCED_OFFSET_AT, HEADER);
+            writePosition = HEADER;
+            markDirty(0, HEADER);
+        }
+        int position = writePosition;
+        int end = position + needed;
+        // terminate first so a stale record left from an earlier pass is never read as live
+        if (end + 4 <= capacity) {
+            buffer.putInt(end, 0);
+        }
+        buffer.put(position + RECORD_HEADER, payload);
+        buffer.putInt(position + 4, checksum(payload));
+        buffer.putInt(position, payload.length);
+        markDirty(position, Math.min(capacity, end + 4));
+        writePosition = end;
+
+        patient.setId(nextPendingId--);
+        unsynced.add(new Entry(key, userId, new PatientRecord(patient), end));
+        notifyAll();
+        return true;
+    }
+
+    /** Up to {@code max} of the oldest unsynced entries, waiting up to {@code timeoutMillis} for one. */
+    public synchronized List<Entry> nextBatch(int max, long timeoutMillis) throws InterruptedException {
+        if (unsynced.isEmpty() && !closed) {
+            wait(timeoutMillis);
+        }
+        List<Entry> batch = new ArrayList<>(Math.min(max, unsynced.size()));
+        for (Entry entry : unsynced) {
+            if (batch.size() == max) {
+                break;
+            }
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    /** Records that {@code batch}, the oldest unsynced entries, reached the database. */
+    public synchronized void markSynced(List<Entry> batch) {
+        for (Entry entry : batch) {
+            if (unsynced.peekFirst() == entry) {
+                unsynced.removeFirst();
+                buffer.putLong(SYNCED_OFFSET_AT, entry.end);
+            }
+        }
+        markDirty(0, HEADER);
+    }
+
+    /** Unsynced patients of the user, oldest first. */
+    public synchronized List<PatientRecord> pending(int userId) {
+        List<PatientRecord> patients = new ArrayList<>();
+        for (Entry entry : unsynced) {
+            if (entry.userId == userId) {
+                patients.add(entry.getPatient());
+            }
+        }
+        return patients;
+    }
+
+    public synchronized int size() {
+        return unsynced.size();
+    }
+
+    private void markDirty(int from, int to) {
+        dirtyFrom = Math.min(dirtyFrom, from);
+        dirtyTo = Math.max(dirtyTo, to);
+    }
+
+    /**
+     * Forces the pages written since the last flush; one fsync covers every
+     * append in between. Appends are not blocked while the disk catches up.
+     */
+    public void flush() {
+        int from;
+        int to;
+        synchronized (this) {
+            if (dirtyFrom >= dirtyTo || closed) {
+                return;
+            }
+            from = dirtyFrom;
+            to = dirtyTo;
+            dirtyFrom = Integer.MAX_VALUE;
+            dirtyTo = 0;
+        }
+        buffer.force(from, to - from);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        channel.close();
+    }
+
+    /**
+     * Appends {@code entry} to {@code file} as a record in the journal's own
+     * framing, so an entry the database refused is kept for someone to fix
+     * and replay rather than lost.
+     */
+    public static void writeRejected(Path file, Entry entry) throws IOException {
+        byte[] payload = encode(entry.key, entry.userId, entry.patient);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+        record.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                out.write(record);
+            }
+            out.force(false);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(String key, int userId, PatientRecord patient) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, key);
+            out.writeInt(userId);
+            writeString(out, patient.getName());
+            out.writeInt(patient.getAge());
+            writeString(out, patient.getGender());
+            writeString(out, patient.getPhone());
+            writeString(out, patient.getSymptoms());
+            writeString(out, patient.getDiagnosis());
+            writeString(out, patient.getTreatment());
+            out.writeLong(patient.getVisitDate().toEpochDay());
+        }
+        return bytes.toByteArray();
+    }
+
+    private Entry decode(byte[] payload, int end) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String key = readString(in);
+            int userId = in.readInt();
+            PatientRecord patient = new PatientRecord(readString(in), in.readInt(), readString(in), readString(in),
+                    readString(in), readString(in), readString(in), null);
+            patient.setVisitDate(LocalDate.ofEpochDay(in.readLong()));
+            patient.setId(nextPendingId--);
+            return new Entry(key, userId, patient, end);
+        }
+    }
+
+    // length-prefixed UTF-8; -1 for null. writeUTF would cap a field at 64 KB.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
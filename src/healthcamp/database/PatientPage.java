@@ -0,0 +1,66 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.util.List;
+
+/**
+ * One page of a user's patients in a {@link PatientSort} order. The
+ * continuation cursor is the sort key and id of the last row, so the next page
+ * is a seek on the index rather than an OFFSET scan.
+ */
+public class PatientPage {
+
+    private final List<PatientRecord> items;
+    private final Cursor next;
+
+    public PatientPage(List<PatientRecord> items, Cursor next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<PatientRecord> getItems() { return items; }
+
+    /** Cursor for the following page, or {@code null} when this is the last page. */
+    public Cursor getNext() { return next; }
+
+    public boolean hasMore() { return next != null; }
+
+    public static final class Cursor {
+        private final PatientSort sort;
+        private final PatientRecord position;
+
+        private Cursor(PatientSort sort, PatientRecord position) {
+            this.sort = sort;
+            this.position = position;
+        }
+
+        /** Continues after {@code last}; only its id and the column {@code sort} orders by are kept. */
+        public static Cursor after(PatientSort sort, PatientRecord last) {
+            PatientRecord position = new PatientRecord();
+            position.setId(last.getId());
+            switch (sort.getKey()) {
+                case NAME -> position.setName(last.getName());
+                case AGE -> position.setAge(last.getAge());
+                case VISIT_DATE -> position.setVisitDate(last.getVisitDate());
+                case ID -> { }
+            }
+            return new Cursor(sort, position);
+        }
+
+        public PatientSort getSort() { return sort; }
+
+        /** The row to seek after, holding only its id and sort key. */
+        PatientRecord getPosition() { return position; }
+
+        @Override
+        public String toString() {
+            Object key = switch (sort.getKey()) {
+                case NAME -> position.getName();
+                case AGE -> position.getAge();
+                case VISIT_DATE -> position.getVisitDate();
+                case ID -> null;
+            };
+            return sort + "/" + (key != null ? key + "/" : "") + position.getId();
+        }
+    }
+}
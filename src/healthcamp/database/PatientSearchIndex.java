@@ -0,0 +1,372 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over one user's patient names and phone numbers.
+ * Each trigram maps to a sorted {@code int[]} postings list of patient ids,
+ * so partial phone numbers and misspelled names are answered without a
+ * database round-trip.
+ */
+public class PatientSearchIndex {
+
+    private static final double MIN_NAME_SIMILARITY = 0.3;
+
+    private final Map<Long, Postings> nameGrams = new HashMap<>();
+    private final Map<Long, Postings> phoneGrams = new HashMap<>();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(PatientRecord patient) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(patient.getId());
+            String normalized = normalizeName(patient.getName());
+            long[] name = trigrams(normalized);
+            long[] phone = trigrams(digits(patient.getPhone()));
+            for (long gram : name) {
+                nameGrams.computeIfAbsent(gram, k -> new Postings()).add(patient.getId());
+            }
+            for (long gram : phone) {
+                phoneGrams.computeIfAbsent(gram, k -> new Postings()).add(patient.getId());
+            }
+            entries.put(patient.getId(), new Entry(patient, normalized, name, phone));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(int patientId) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(patientId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(int patientId) {
+        Entry old = entries.remove(patientId);
+        if (old == null) {
+            return false;
+        }
+        removeGrams(nameGrams, old.nameGrams, patientId);
+        removeGrams(phoneGrams, old.phoneGrams, patientId);
+        return true;
+    }
+
+    private static void removeGrams(Map<Long, Postings> index, long[] grams, int patientId) {
+        for (long gram : grams) {
+            Postings postings = index.get(gram);
+            if (postings != null && postings.remove(patientId) && postings.size == 0) {
+                index.remove(gram);
+            }
+        }
+    }
+
+    public boolean contains(int patientId) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(patientId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Digit-only queries of three or more digits match phone numbers
+     * containing them; anything else is a fuzzy name match ranked by trigram
+     * similarity. Ties go to the most recent visit.
+     */
+    public List<PatientRecord> lookup(String query, int limit) {
+        if (query == null) {
+            return List.of();
+        }
+        String trimmed = query.trim();
+        String queryDigits = digits(trimmed);
+
+        lock.readLock().lock();
+        try {
+            return isPhoneQuery(trimmed) ? lookupPhone(queryDigits, limit) : lookupName(normalizeName(trimmed), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Whether {@link #lookup} treats {@code query} as part of a phone number rather than a name. */
+    public static boolean isPhoneQuery(String query) {
+        String trimmed = query.trim();
+        String queryDigits = digits(trimmed);
+        return queryDigits.length() >= 3 && queryDigits.length() >= trimmed.replaceAll("[\\s+()-]", "").length();
+    }
+
+    private List<PatientRecord> lookupPhone(String queryDigits, int limit) {
+        long[] grams = trigrams(queryDigits);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = phoneGrams.get(grams[i]);
+            if (lists[i] == null) {
+                return List.of();
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+        List<Scored> hits = new ArrayList<>();
+        Postings smallest = lists[0];
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            boolean inAll = true;
+            for (int j = 1; j < lists.length && inAll; j++) {
+                inAll = lists[j].contains(id);
+            }
+            if (inAll) {
+                Entry entry = entries.get(id);
+                String phone = digits(entry.patient.getPhone());
+                // trigram intersection can over-match, confirm the substring
+                int at = phone.indexOf(queryDigits);
+                if (at >= 0) {
+                    hits.add(new Scored(entry.patient, at == 0 ? 2.0 : 1.0));
+                }
+            }
+        }
+        return top(hits, limit);
+    }
+
+    private List<PatientRecord> lookupName(String normalized, int limit) {
+        if (normalized.isBlank()) {
+            return List.of();
+        }
+        long[] grams = trigrams(normalized);
+        IntCounter counts = new IntCounter(64);
+        for (long gram : grams) {
+            Postings postings = nameGrams.get(gram);
+            if (postings != null) {
+                for (int i = 0; i < postings.size; i++) {
+                    counts.increment(postings.ids[i]);
+                }
+            }
+        }
+
+        List<Scored> hits = new ArrayList<>();
+        String needle = normalized.trim();
+        for (int slot = 0; slot < counts.keys.length; slot++) {
+            int common = counts.counts[slot];
+            if (common == 0) {
+                continue;
+            }
+            Entry entry = entries.get(counts.keys[slot]);
+            int distinct = entry.nameGrams.length;
+            double similarity = 2.0 * common / (grams.length + distinct);
+            if (entry.normalizedName.contains(needle)) {
+                similarity += 1.0;
+            }
+            if (similarity >= MIN_NAME_SIMILARITY) {
+                hits.add(new Scored(entry.patient, similarity));
+            }
+        }
+        return top(hits, limit);
+    }
+
+    private static List<PatientRecord> top(List<Scored> hits, int limit) {
+        hits.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed()
+                .thenComparing(s -> s.patient.getVisitDate(), Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(s -> s.patient.getId(), Comparator.reverseOrder()));
+        List<PatientRecord> result = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            result.add(hits.get(i).patient);
+        }
+        return result;
+    }
+
+    static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(name.length() + 2).append(' ');
+        boolean space = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        if (!space) {
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+    static String digits(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] grams = new long[text.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int n = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[n++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    private static final class Entry {
+        final PatientRecord patient;
+        final String normalizedName;
+        final long[] nameGrams;
+        final long[] phoneGrams;
+
+        Entry(PatientRecord patient, String normalizedName, long[] nameGrams, long[] phoneGrams) {
+            this.patient = patient;
+            this.normalizedName = normalizedName;
+            this.nameGrams = nameGrams;
+            this.phoneGrams = phoneGrams;
+        }
+    }
+
+    private static final class Scored {
+        final PatientRecord patient;
+        final double score;
+
+        Scored(PatientRecord patient, double score) {
+            this.patient = patient;
+            this.score = score;
+        }
+    }
+
+    /** Sorted, growable list of patient ids. */
+    static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] < id) {
+                append(id);
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            int insert = -at - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            ids[insert] = id;
+            size++;
+        }
+
+        private void append(int id) {
+            ensureCapacity();
+            ids[size++] = id;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /** Open-addressing int to int counter used while scoring a query. */
+    private static final class IntCounter {
+        int[] keys;
+        int[] counts;
+        private int used;
+
+        IntCounter(int capacity) {
+            keys = new int[capacity];
+            counts = new int[capacity];
+        }
+
+        void increment(int key) {
+            if (used * 2 >= keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (counts[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                used++;
+            }
+            counts[slot]++;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] != 0) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (counts[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Order for windowed patient reads. Every key is backed by a
+ * {@code (user_id, key)} index, and {@code id} breaks ties in the same
+ * direction so the order is total and a row can be used as a seek position.
+ */
+public final class PatientSort {
+
+    public enum Key {
+        ID("id"),
+        NAME("name"),
+        AGE("age"),
+        VISIT_DATE("visit_date");
+
+        private final String column;
+
+        Key(String column) {
+            this.column = column;
+        }
+
+        public String getColumn() { return column; }
+    }
+
+    /** Newest visit first, the order the table opens in. */
+    public static final PatientSort DEFAULT = new PatientSort(Key.VISIT_DATE, true);
+
+    private final Key key;
+    private final boolean descending;
+
+    public PatientSort(Key key, boolean descending) {
+        this.key = Objects.requireNonNull(key);
+        this.descending = descending;
+    }
+
+    public Key getKey() { return key; }
+    public boolean isDescending() { return descending; }
+
+    /** ORDER BY list, with each column prefixed by {@code alias}. */
+    public String orderBy(String alias) {
+        String direction = descending ? " DESC" : " ASC";
+        if (key == Key.ID) {
+            return alias + "id" + direction;
+        }
+        return alias + key.column + direction + ", " + alias + "id" + direction;
+    }
+
+    /**
+     * The same order applied in memory, for rows that are not read back from
+     * the database. Names compare case-insensitively, as MySQL's default
+     * collation does.
+     */
+    public Comparator<PatientRecord> comparator() {
+        Comparator<PatientRecord> order = switch (key) {
+            case ID -> Comparator.comparingInt(PatientRecord::getId);
+            case NAME -> Comparator.comparing(PatientRecord::getName, String.CASE_INSENSITIVE_ORDER);
+            case AGE -> Comparator.comparingInt(PatientRecord::getAge);
+            case VISIT_DATE -> Comparator.comparing(PatientRecord::getVisitDate);
+        };
+        order = order.thenComparingInt(PatientRecord::getId);
+        return descending ? order.reversed() : order;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PatientSort other && key == other.key && descending == other.descending;
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode() * 2 + (descending ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return key.column + (descending ? " desc" : " asc");
+    }
+}
@@ -0,0 +1,348 @@
+package healthcamp.database;
+
+import healthcamp.metrics.DaoMetrics;
+import healthcamp.model.PatientRecord;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Daily visit counts per user in {@code patient_daily_stats}, broken down by
+ * gender, diagnosis and age band. The table is kept current inside the same
+ * transaction as each patient write, so a date-range report reads one row
+ * per day and bucket instead of scanning patients.
+ * <p>
+ * Patient counts are read from here too, so rows written to {@code patients}
+ * outside the application (manual SQL, another tool) are not counted until
+ * the rollup is rebuilt. {@link #findDrift} finds the days that disagree and
+ * {@link #rebuild} recomputes them; both are also run headless by
+ * {@link #main}, and the service checks the rollup at each login.
+ */
+public class PatientStatsDAO {
+
+    public enum Dimension {
+        TOTAL, GENDER, DIAGNOSIS, AGE_BAND;
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO patient_daily_stats (user_id, stat_date, dimension, bucket, visits)
+        VALUES (?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE visits = visits + VALUES(visits)
+    """;
+
+    private static final String NONE = "(none)";
+
+    private static final DaoMetrics.Operation VISIT_COUNT_OP = DaoMetrics.operation("stats.visitCount");
+    private static final DaoMetrics.Operation DAILY_OP = DaoMetrics.operation("stats.daily");
+    private static final DaoMetrics.Operation BREAKDOWN_OP = DaoMetrics.operation("stats.breakdown");
+    private static final DaoMetrics.Operation REBUILD_OP = DaoMetrics.operation("stats.rebuild");
+    private static final DaoMetrics.Operation DRIFT_OP = DaoMetrics.operation("stats.drift");
+
+    /**
+     * Bucket labels per dimension. Incremental updates and {@link #rebuild}
+     * both go through here, so a value lands in the same bucket whichever
+     * path wrote it.
+     */
+    static String bucket(Dimension dimension, PatientRecord patient) {
+        switch (dimension) {
+            case GENDER: return label(patient.getGender());
+            case DIAGNOSIS: return label(patient.getDiagnosis());
+            case AGE_BAND: return ageBand(patient.getAge());
+            default: return "";
+        }
+    }
+
+    static String ageBand(int age) {
+        if (age < 5) return "0-4";
+        if (age < 15) return "5-14";
+        if (age < 25) return "15-24";
+        if (age < 45) return "25-44";
+        if (age < 65) return "45-64";
+        return "65+";
+    }
+
+    private static String label(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return NONE;
+        }
+        String trimmed = value.trim();
+        return trimmed.length() > 200 ? trimmed.substring(0, 200) : trimmed;
+    }
+
+    /**
+     * Net per-bucket changes collected during one transaction and written
+     * with a single batch just before it commits.
+     */
+    static final class Delta {
+        private final Map<Key, Integer> changes = new HashMap<>();
+
+        Delta add(int userId, PatientRecord patient, int visits) {
+            for (Dimension dimension : Dimension.values()) {
+                changes.merge(new Key(userId, patient.getVisitDate(), dimension.key(), bucket(dimension, patient)),
+                        visits, Integer::sum);
+            }
+            return this;
+        }
+
+        /** Writes the non-zero changes and returns how many rollup rows they touched. */
+        int writeTo(Connection conn) throws SQLException {
+            if (changes.isEmpty()) {
+                return 0;
+            }
+            int batched = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                for (Map.Entry<Key, Integer> change : changes.entrySet()) {
+                    if (change.getValue() == 0) {
+                        continue;
+                    }
+                    Key key = change.getKey();
+                    pstmt.setInt(1, key.userId);
+                    pstmt.setDate(2, Date.valueOf(key.date));
+                    pstmt.setString(3, key.dimension);
+                    pstmt.setString(4, key.bucket);
+                    pstmt.setInt(5, change.getValue());
+                    pstmt.addBatch();
+                    batched++;
+                }
+                if (batched > 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            changes.clear();
+            return batched;
+        }
+    }
+
+    private static final class Key {
+        final int userId;
+        final LocalDate date;
+        final String dimension;
+        final String bucket;
+
+        Key(int userId, LocalDate date, String dimension, String bucket) {
+            this.userId = userId;
+            this.date = date;
+            this.dimension = dimension;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return userId == k.userId && date.equals(k.date)
+                    && dimension.equals(k.dimension) && bucket.equals(k.bucket);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, date, dimension, bucket);
+        }
+    }
+
+    @SuppressWarnings("try")
+    public int getVisitCount(int userId, LocalDate date) {
+        String sql = """
+            SELECT visits FROM patient_daily_stats
+            WHERE user_id = ? AND stat_date = ? AND dimension = 'total' AND bucket = ''
+        """;
+        try (DaoMetrics.Timer timer = VISIT_COUNT_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(date));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    DaoMetrics.row(4);
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            VISIT_COUNT_OP.failed(e);
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /** Visits per day in {@code [from, to]}; days without visits are omitted. */
+    @SuppressWarnings("try")
+    public Map<LocalDate, Integer> getDailyVisits(int userId, LocalDate from, LocalDate to) {
+        Map<LocalDate, Integer> days = new TreeMap<>();
+        String sql = """
+            SELECT stat_date, visits FROM patient_daily_stats
+            WHERE user_id = ? AND dimension = 'total' AND stat_date BETWEEN ? AND ? AND visits > 0
+            ORDER BY stat_date
+        """;
+        try (DaoMetrics.Timer timer = DAILY_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(from));
+            pstmt.setDate(3, Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    days.put(rs.getDate(1).toLocalDate(), rs.getInt(2));
+                    DaoMetrics.row(8);
+                }
+            }
+        } catch (SQLException e) {
+            DAILY_OP.failed(e);
+            e.printStackTrace();
+        }
+        return days;
+    }
+
+    /** Visits per bucket of {@code dimension} in {@code [from, to]}, largest first. */
+    @SuppressWarnings("try")
+    public Map<String, Integer> getBreakdown(int userId, Dimension dimension, LocalDate from, LocalDate to) {
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        String sql = """
+            SELECT bucket, SUM(visits) AS total FROM patient_daily_stats
+            WHERE user_id = ? AND dimension = ? AND stat_date BETWEEN ? AND ?
+            GROUP BY bucket HAVING SUM(visits) > 0
+            ORDER BY total DESC, bucket
+        """;
+        try (DaoMetrics.Timer timer = BREAKDOWN_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, dimension.key());
+            pstmt.setDate(3, Date.valueOf(from));
+            pstmt.setDate(4, Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String bucket = rs.getString(1);
+                    buckets.put(bucket, rs.getInt(2));
+                    DaoMetrics.row(4 + DaoMetrics.bytes(bucket));
+                }
+            }
+        } catch (SQLException e) {
+            BREAKDOWN_OP.failed(e);
+            e.printStackTrace();
+        }
+        return buckets;
+    }
+
+    /**
+     * Recomputes the rollup from the patients table for one user, or for
+     * everyone when {@code userId} is null, in a single transaction. The
+     * rows are bucketed in Java by {@link #bucket}, exactly as the
+     * incremental updates are. Returns the number of rollup rows written.
+     */
+    @SuppressWarnings("try")
+    public int rebuild(Integer userId) throws SQLException {
+        String where = userId == null ? "" : " WHERE user_id = ?";
+        try (DaoMetrics.Timer timer = REBUILD_OP.start();
+             Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM patient_daily_stats" + where)) {
+                if (userId != null) {
+                    delete.setInt(1, userId);
+                }
+                delete.executeUpdate();
+            }
+            Delta rollup = new Delta();
+            try (PreparedStatement select = conn.prepareStatement(
+                    "SELECT user_id, visit_date, gender, diagnosis, age FROM patients" + where)) {
+                if (userId != null) {
+                    select.setInt(1, userId);
+                }
+                select.setFetchSize(1000);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        PatientRecord patient = new PatientRecord();
+                        patient.setVisitDate(rs.getDate(2).toLocalDate());
+                        patient.setGender(rs.getString(3));
+                        patient.setDiagnosis(rs.getString(4));
+                        patient.setAge(rs.getInt(5));
+                        rollup.add(rs.getInt(1), patient, 1);
+                    }
+                }
+            }
+            int rows = rollup.writeTo(conn);
+            conn.commit();
+            return rows;
+        }
+    }
+
+    /**
+     * Days on which the user's rollup total and the patients table disagree,
+     * mapped to how many more patients the table has than the rollup counts
+     * (negative when it has fewer). Empty when the rollup is current.
+     */
+    @SuppressWarnings("try")
+    public Map<LocalDate, Integer> findDrift(int userId) throws SQLException {
+        Map<LocalDate, Integer> drift = new TreeMap<>();
+        String sql = """
+            SELECT d, SUM(p) - SUM(r) FROM (
+                SELECT stat_date AS d, visits AS r, 0 AS p FROM patient_daily_stats
+                WHERE user_id = ? AND dimension = 'total'
+                UNION ALL
+                SELECT visit_date, 0, 1 FROM patients WHERE user_id = ?
+            ) counts
+            GROUP BY d HAVING SUM(p) <> SUM(r)
+        """;
+        try (DaoMetrics.Timer timer = DRIFT_OP.start();
+             Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    drift.put(rs.getDate(1).toLocalDate(), rs.getInt(2));
+                    DaoMetrics.row(8);
+                }
+            }
+        } catch (SQLException e) {
+            DRIFT_OP.failed(e);
+            throw e;
+        }
+        return drift;
+    }
+
+    /** Builds the rollup on first start after upgrading, when patients exist but no stats do. */
+    static void rebuildIfMissing(Connection conn) throws SQLException {
+        String sql = "SELECT EXISTS (SELECT 1 FROM patients), EXISTS (SELECT 1 FROM patient_daily_stats)";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (!rs.next() || !rs.getBoolean(1) || rs.getBoolean(2)) {
+                return;
+            }
+        }
+        long start = System.nanoTime();
+        int rows = new PatientStatsDAO().rebuild(null);
+        System.out.printf("Built daily statistics: %d rows in %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Headless rebuild job: {@code PatientStatsDAO [userId]}, or {@code PatientStatsDAO --verify userId}. */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--verify")) {
+            Map<LocalDate, Integer> drift = new PatientStatsDAO().findDrift(Integer.parseInt(args[1]));
+            drift.forEach((day, missing) -> System.out.printf("%s: %+d patients not in the statistics%n", day, missing));
+            System.out.println(drift.isEmpty() ? "Daily statistics are current" : drift.size() + " days differ; rebuild to repair");
+            DatabaseManager.shutdown();
+            return;
+        }
+        Integer userId = args.length > 0 ? Integer.valueOf(args[0]) : null;
+        long start = System.nanoTime();
+        int rows = new PatientStatsDAO().rebuild(userId);
+        System.out.printf("Rebuilt daily statistics for %s: %d rows in %d ms%n",
+                userId == null ? "all users" : "user " + userId, rows, (System.nanoTime() - start) / 1_000_000);
+        DatabaseManager.shutdown();
+    }
+}
@@ -0,0 +1,317 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group commit for patient inserts. Callers on any thread {@link #submit}
+ * a patient into a bounded queue; one committer thread takes whatever has
+ * queued, waits up to {@code maxDelayMillis} for more, and writes up to
+ * {@code maxBatch} rows as a single JDBC batch in one transaction. Each
+ * caller's future completes once that transaction has committed, so many
+ * desks share one commit (and one log flush on MySQL) instead of paying for
+ * one each.
+ * <p>
+ * Futures follow {@link PatientDAO#addPatient}: the saved patient, or
+ * {@code null} if it could not be written. When a batch fails its rows are
+ * retried one by one, so a row the database rejects fails alone. A full
+ * queue makes {@code submit} wait up to {@code offerTimeoutMillis}.
+ * <p>
+ * Shared by the process and started on first use; enabled with
+ * {@code pipeline.enabled=true}.
+ */
+public final class PatientWritePipeline implements Runnable {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO patients (user_id, name, age, gender, phone, symptoms, diagnosis, treatment, visit_date)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private static PatientWritePipeline shared;
+
+    private final BlockingQueue<Write> queue;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final long offerTimeoutMillis;
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private static final class Write {
+        final int userId;
+        final PatientRecord patient;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<PatientRecord> result = new CompletableFuture<>();
+
+        Write(int userId, PatientRecord patient) {
+            this.userId = userId;
+            this.patient = patient;
+        }
+    }
+
+    public PatientWritePipeline(int capacity, int maxBatch, long maxDelayMillis, long offerTimeoutMillis) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.committer = new Thread(this, "patient-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /** The process-wide pipeline, created from the {@code pipeline.*} settings on first use. */
+    public static synchronized PatientWritePipeline shared() {
+        if (shared == null) {
+            DatabaseConfig config = DatabaseManager.getConfig();
+            shared = new PatientWritePipeline(config.getInt("pipeline.queueCapacity", 1024),
+                    config.getInt("pipeline.maxBatch", 100), config.getLong("pipeline.maxDelayMs", 5),
+                    config.getLong("pipeline.offerTimeoutMs", 1000));
+        }
+        return shared;
+    }
+
+    /** Commits what is already queued, then stops the shared pipeline. */
+    public static synchronized void shutdown() {
+        if (shared != null) {
+            shared.close();
+            System.out.println("Write pipeline: " + shared.getStats());
+            shared = null;
+        }
+    }
+
+    /**
+     * Queues the insert. The future completes on the committer thread with
+     * the patient, its id set, or with {@code null} if the write failed or the
+     * queue stayed full. May block the calling thread while the queue is full.
+     */
+    public CompletableFuture<PatientRecord> submit(int userId, PatientRecord patient) {
+        Write write = new Write(userId, patient);
+        try {
+            if (running && queue.offer(write, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return write.result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        System.err.println("Write pipeline: queue full or closed, patient not saved");
+        write.result.complete(null);
+        return write.result;
+    }
+
+    @Override
+    public void run() {
+        List<Write> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Write first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == maxBatch || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Write next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commitOrSplit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitOrSplit(List<Write> batch) {
+        try {
+            commit(batch);
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() == 1) {
+                e.printStackTrace();
+                failed.increment();
+                batch.get(0).result.complete(null);
+                return;
+            }
+            System.err.println("Write pipeline: batch of " + batch.size() + " failed (" + e.getMessage()
+                    + "), retrying rows one by one");
+            for (Write write : batch) {
+                commitOrSplit(List.of(write));
+            }
+            return;
+        }
+        long end = System.nanoTime();
+        for (Write write : batch) {
+            long waited = end - write.enqueuedAt;
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            try {
+                PatientDAO.firePatientAdded(write.userId, write.patient);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            write.result.complete(write.patient);
+        }
+    }
+
+    private void commit(List<Write> batch) throws SQLException {
+        long start = System.nanoTime();
+        PatientStatsDAO.Delta stats = new PatientStatsDAO.Delta();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            for (Write write : batch) {
+                PatientRecord patient = write.patient;
+                pstmt.setInt(1, write.userId);
+                pstmt.setString(2, patient.getName());
+                pstmt.setInt(3, patient.getAge());
+                pstmt.setString(4, patient.getGender());
+                pstmt.setString(5, patient.getPhone());
+                pstmt.setString(6, patient.getSymptoms());
+                pstmt.setString(7, patient.getDiagnosis());
+                pstmt.setString(8, patient.getTreatment());
+                pstmt.setDate(9, Date.valueOf(patient.getVisitDate()));
+                pstmt.addBatch();
+                stats.add(write.userId, patient, 1);
+            }
+            pstmt.executeBatch();
+            int[] ids = new int[batch.size()];
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (!keys.next()) {
+                        throw new SQLException("Expected " + ids.length + " generated ids, got " + i);
+                    }
+                    ids[i] = keys.getInt(1);
+                }
+            }
+            stats.writeTo(conn);
+            conn.commit();
+            for (int i = 0; i < ids.length; i++) {
+                batch.get(i).patient.setId(ids[i]);
+            }
+        }
+        record(batch.size(), System.nanoTime() - start);
+    }
+
+    private void record(int size, long nanos) {
+        batches.increment();
+        committed.add(size);
+        commitNanos.add(nanos);
+        maxBatchSize.accumulateAndGet(size, Math::max);
+        maxCommitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Stops taking new writes and waits for the queued ones to commit. The
+     * committer is not interrupted: an interrupt can abort JDBC I/O midway.
+     */
+    public void close() {
+        running = false;
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // a submit racing with close may have queued after the committer left
+        Write late;
+        while ((late = queue.poll()) != null) {
+            rejected.increment();
+            late.result.complete(null);
+        }
+    }
+
+    public PipelineStats getStats() {
+        long batchCount = batches.sum();
+        long rows = committed.sum();
+        return new PipelineStats(queue.size(), rows, failed.sum(), rejected.sum(), batchCount,
+                batchCount == 0 ? 0 : rows / (double) batchCount, maxBatchSize.get(),
+                batchCount == 0 ? 0 : commitNanos.sum() / (double) batchCount / 1_000_000.0,
+                maxCommitNanos.get() / 1_000_000.0,
+                rows == 0 ? 0 : waitNanos.sum() / (double) rows / 1_000_000.0,
+                maxWaitNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Commit latency is one transaction, from the first insert to the commit
+     * returning; wait is what a caller saw, from submit to its future completing.
+     */
+    public static final class PipelineStats {
+        private final int queued;
+        private final long committed;
+        private final long failed;
+        private final long rejected;
+        private final long batches;
+        private final double avgBatchSize;
+        private final long maxBatchSize;
+        private final double avgCommitMillis;
+        private final double maxCommitMillis;
+        private final double avgWaitMillis;
+        private final double maxWaitMillis;
+
+        PipelineStats(int queued, long committed, long failed, long rejected, long batches,
+                      double avgBatchSize, long maxBatchSize, double avgCommitMillis, double maxCommitMillis,
+                      double avgWaitMillis, double maxWaitMillis) {
+            this.queued = queued;
+            this.committed = committed;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.batches = batches;
+            this.avgBatchSize = avgBatchSize;
+            this.maxBatchSize = maxBatchSize;
+            this.avgCommitMillis = avgCommitMillis;
+            this.maxCommitMillis = maxCommitMillis;
+            this.avgWaitMillis = avgWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public int getQueued() { return queued; }
+        public long getCommitted() { return committed; }
+        public long getFailed() { return failed; }
+        public long getRejected() { return rejected; }
+        public long getBatches() { return batches; }
+        public double getAvgBatchSize() { return avgBatchSize; }
+        public long getMaxBatchSize() { return maxBatchSize; }
+        public double getAvgCommitMillis() { return avgCommitMillis; }
+        public double getMaxCommitMillis() { return maxCommitMillis; }
+        public double getAvgWaitMillis() { return avgWaitMillis; }
+        public double getMaxWaitMillis() { return maxWaitMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("queued=%d committed=%d failed=%d rejected=%d batches=%d avgBatch=%.1f maxBatch=%d avgCommit=%.3fms maxCommit=%.3fms avgWait=%.3fms maxWait=%.3fms",
+                    queued, committed, failed, rejected, batches, avgBatchSize, maxBatchSize,
+                    avgCommitMillis, maxCommitMillis, avgWaitMillis, maxWaitMillis);
+        }
+    }
+}
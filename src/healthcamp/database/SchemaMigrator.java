@@ -0,0 +1,264 @@
+package healthcamp.database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings the schema up to date at startup. Migrations are applied in version
+ * order and recorded in {@code schema_migrations} with a checksum of their
+ * statements and how long they took. A migration whose statements changed
+ * after it was applied stops startup rather than leaving the schema in an
+ * unknown state, so add a new migration instead of editing an old one. So
+ * does a recorded migration this version does not know: it means a newer
+ * release already upgraded the database, and an older one must not run
+ * against a schema it was not written for.
+ * <p>
+ * Every statement must be safe to repeat: databases created before this
+ * class existed already have some of these tables and indexes, and DDL on
+ * MySQL commits as it goes, so a migration cut short is simply run again.
+ * Indexes are created only if missing, and on MySQL without blocking
+ * writes ({@code ALGORITHM=INPLACE LOCK=NONE}) so an upgrade can run while
+ * other desks keep registering patients.
+ */
+public final class SchemaMigrator {
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final boolean mySqlOnly;
+        final List<String> statements;
+
+        Migration(int version, String description, boolean mySqlOnly, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.mySqlOnly = mySqlOnly;
+            this.statements = List.of(statements);
+        }
+
+        String checksum() {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (String statement : statements) {
+                    digest.update(statement.strip().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) '\n');
+                }
+                return HexFormat.of().formatHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "users table", false, """
+            CREATE TABLE IF NOT EXISTS users (
+                id INT PRIMARY KEY AUTO_INCREMENT,
+                username VARCHAR(50) NOT NULL UNIQUE,
+                email VARCHAR(100) NOT NULL UNIQUE,
+                password VARCHAR(255) NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+        """),
+        new Migration(2, "patients table", false, """
+            CREATE TABLE IF NOT EXISTS patients (
+                id INT PRIMARY KEY AUTO_INCREMENT,
+                user_id INT NOT NULL,
+                name VARCHAR(100) NOT NULL,
+                age INT NOT NULL,
+                gender VARCHAR(10),
+                phone VARCHAR(15),
+                symptoms TEXT,
+                diagnosis VARCHAR(200),
+                treatment TEXT,
+                visit_date DATE NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+            )
+        """),
+        // InnoDB appends the primary key to every secondary index; H2 needs id spelled out to seek in order
+        new Migration(3, "patient list and today's count: index (user_id, visit_date, id)", false,
+            "CREATE INDEX idx_patients_user_visit ON patients (user_id, visit_date, id)"),
+        new Migration(4, "name sort and prefix search: index (user_id, name, id)", false,
+            "CREATE INDEX idx_patients_user_name ON patients (user_id, name, id)"),
+        new Migration(5, "age sort: index (user_id, age, id)", false,
+            "CREATE INDEX idx_patients_user_age ON patients (user_id, age, id)"),
+        new Migration(6, "phone lookup: index (user_id, phone)", true,
+            "CREATE INDEX idx_patients_user_phone ON patients (user_id, phone)"),
+        new Migration(7, "keyword search: full-text index on name, symptoms, diagnosis", true,
+            "CREATE FULLTEXT INDEX ft_patients_text ON patients (name, symptoms, diagnosis)"),
+        new Migration(8, "daily statistics rollup", false, """
+            CREATE TABLE IF NOT EXISTS patient_daily_stats (
+                user_id INT NOT NULL,
+                stat_date DATE NOT NULL,
+                dimension VARCHAR(16) NOT NULL,
+                bucket VARCHAR(200) NOT NULL,
+                visits INT NOT NULL,
+                PRIMARY KEY (user_id, stat_date, dimension, bucket)
+            )
+        """),
+        new Migration(9, "offline journal write keys", false, """
+            CREATE TABLE IF NOT EXISTS patient_write_keys (
+                write_key CHAR(36) PRIMARY KEY,
+                patient_id INT NOT NULL,
+                applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+        """)
+    );
+
+    private static final String CREATE_HISTORY_TABLE = """
+        CREATE TABLE IF NOT EXISTS schema_migrations (
+            version INT PRIMARY KEY,
+            description VARCHAR(200) NOT NULL,
+            checksum CHAR(64) NOT NULL,
+            duration_ms BIGINT NOT NULL,
+            applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+        )
+    """;
+
+    private static final Pattern CREATE_INDEX =
+            Pattern.compile("(?is)CREATE\\s+(FULLTEXT\\s+)?INDEX\\s+(\\w+)\\s+ON\\s+(\\w+).*");
+    private static final String LOCK_NAME = "healthcamp.schema_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final Connection conn;
+    private final boolean mySql;
+
+    public SchemaMigrator(Connection conn, boolean mySql) {
+        this.conn = conn;
+        this.mySql = mySql;
+    }
+
+    /** Applies every pending migration and returns how many ran. */
+    public int migrate() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_HISTORY_TABLE);
+        }
+        // desks sharing a MySQL server all migrate at startup; let one do it and the rest see the result
+        if (mySql) {
+            acquireLock();
+        }
+        try {
+            Map<Integer, String> applied = appliedChecksums();
+            int count = 0;
+            for (Migration migration : MIGRATIONS) {
+                String checksum = migration.checksum();
+                String recorded = applied.remove(migration.version);
+                if (recorded == null) {
+                    apply(migration, checksum);
+                    count++;
+                } else if (!recorded.equals(checksum)) {
+                    throw new SQLException("Schema migration " + migration.version + " (" + migration.description
+                            + ") was changed after it was applied; add a new migration instead");
+                }
+            }
+            if (!applied.isEmpty()) {
+                throw new SQLException("Database has schema migrations this version does not know: "
+                        + applied.keySet() + "; it was upgraded by a newer release");
+            }
+            return count;
+        } finally {
+            if (mySql) {
+                releaseLock();
+            }
+        }
+    }
+
+    private Map<Integer, String> appliedChecksums() throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private void apply(Migration migration, String checksum) throws SQLException {
+        long start = System.nanoTime();
+        if (!migration.mySqlOnly || mySql) {
+            for (String statement : migration.statements) {
+                execute(statement);
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        String sql = "INSERT INTO schema_migrations (version, description, checksum, duration_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.setString(3, checksum);
+            pstmt.setLong(4, millis);
+            pstmt.executeUpdate();
+        }
+        if (migration.mySqlOnly && !mySql) {
+            System.out.printf("Schema migration %d (%s): MySQL only, skipped%n", migration.version, migration.description);
+        } else {
+            System.out.printf("Schema migration %d (%s): applied in %d ms%n", migration.version, migration.description, millis);
+        }
+    }
+
+    private void execute(String statement) throws SQLException {
+        Matcher index = CREATE_INDEX.matcher(statement.strip());
+        if (index.matches()) {
+            if (indexExists(index.group(3), index.group(2))) {
+                return;
+            }
+            // InnoDB cannot add a full-text index with LOCK=NONE; let it pick
+            if (mySql && index.group(1) == null) {
+                statement = statement.strip() + " ALGORITHM=INPLACE LOCK=NONE";
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(statement);
+        }
+    }
+
+    private boolean indexExists(String table, String index) throws SQLException {
+        String sql = mySql
+                ? "SELECT COUNT(*) FROM information_schema.statistics"
+                  + " WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?"
+                : "SELECT COUNT(*) FROM information_schema.indexes"
+                  + " WHERE table_schema = SCHEMA() AND table_name = ? AND index_name = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, index);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private void acquireLock() throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out after " + LOCK_TIMEOUT_SECONDS
+                            + " s waiting for another instance to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private void releaseLock() {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package healthcamp.database;
+
+import healthcamp.metrics.DaoMetrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.regex.Pattern;
+
+/**
+ * Writes every statement that runs longer than {@code slowQuery.thresholdMs}
+ * to a rotating file, with its duration, row count and the DAO operation it
+ * ran under. Statements are logged by shape: literals become {@code ?} and
+ * bound parameters are reduced to their types, so no patient data reaches
+ * the file. The first time a shape is slow its {@code EXPLAIN} plan is
+ * captured with the same parameters and logged with it; later records carry
+ * the shape's id so the plan can be found. Records are written, and plans
+ * captured on a connection of their own, by a background thread, so the
+ * call that ran slow is not made slower still.
+ * <p>
+ * Off by default ({@code slowQuery.enabled}): while on, every statement and
+ * result set is wrapped in a timing proxy. Installed by
+ * {@link ConnectionPool}, which wraps the statements it hands
+ * out. A query's time is the execute call plus every {@code next()} on its
+ * result set, so fetching the rows counts but the caller's own work between
+ * rows, such as writing an export, does not.
+ */
+public final class SlowQueryLog implements AutoCloseable {
+
+    private static final Pattern LITERALS = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LISTS = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern EXPLAINABLE = Pattern.compile("(?i)^(SELECT|INSERT|UPDATE|DELETE|REPLACE)\\b.*");
+    private static final int MAX_SHAPES = 10_000;
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final FileHandler file;
+    private final Set<String> explained = ConcurrentHashMap.newKeySet();
+    private final ExecutorService writer;
+    private volatile ConnectionPool pool;
+
+    SlowQueryLog(long thresholdMillis, boolean explain, FileHandler file) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.explain = explain;
+        this.file = file;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "slow-query-log");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /** The pool plans are captured from; set by {@link ConnectionPool#setSlowQueryLog}. */
+    void attach(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /** The log described by {@code slowQuery.*}, or null when it is off or its file cannot be opened. */
+    static SlowQueryLog fromConfig(DatabaseConfig config) {
+        if (!config.getBoolean("slowQuery.enabled", false)) {
+            return null;
+        }
+        String pattern = config.get("slowQuery.file", "logs/slow-queries.%g.log");
+        try {
+            Path parent = Path.of(pattern).toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            FileHandler file = new FileHandler(pattern,
+                    config.getInt("slowQuery.maxFileKb", 1024) * 1024,
+                    Math.max(1, config.getInt("slowQuery.maxFiles", 5)), true);
+            file.setEncoding(StandardCharsets.UTF_8.name());
+            file.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return record.getMessage() + System.lineSeparator();
+                }
+            });
+            return new SlowQueryLog(config.getLong("slowQuery.thresholdMs", 100),
+                    config.getBoolean("slowQuery.explain", true), file);
+        } catch (IOException e) {
+            System.err.println("Slow query log disabled, cannot open " + pattern + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Wraps a statement; {@code sql} is null for plain statements. */
+    Statement wrap(Statement statement, String sql) {
+        Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new StatementHandler(statement, sql));
+    }
+
+    /** Writes the records still queued, waiting up to a second, then closes the file. */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        file.close();
+    }
+
+    private void record(Execution execution) {
+        long nanos = execution.nanos;
+        if (nanos < thresholdNanos) {
+            return;
+        }
+        String shape = shape(execution.sql);
+        String id = String.format("%08x", shape.hashCode());
+        StringBuilder entry = new StringBuilder(512);
+        entry.append(LocalDateTime.now()).append(' ')
+             .append(execution.operation != null ? execution.operation : "-")
+             .append(String.format(Locale.ROOT, " %.1f ms rows=", nanos / 1e6))
+             .append(execution.rows >= 0 ? String.valueOf(execution.rows) : "?")
+             .append(" shape=").append(id);
+        if (execution.batchSize > 0) {
+            entry.append(" batch=").append(execution.batchSize);
+        }
+        entry.append(System.lineSeparator()).append("  ").append(shape);
+        if (!execution.parameters.isEmpty()) {
+            entry.append(System.lineSeparator()).append("  params: ").append(redact(execution.parameters));
+        }
+        boolean withPlan = explain && explained.size() < MAX_SHAPES && EXPLAINABLE.matcher(shape).matches()
+                && explained.add(shape);
+        try {
+            writer.execute(() -> {
+                if (withPlan) {
+                    entry.append(System.lineSeparator()).append("  plan:");
+                    for (String line : explain(execution)) {
+                        entry.append(System.lineSeparator()).append("    ").append(line);
+                    }
+                }
+                file.publish(new LogRecord(Level.INFO, entry.toString()));
+            });
+        } catch (RejectedExecutionException e) {
+            // the writer is behind or closed; skip the record, and let a later one capture the plan
+            if (withPlan) {
+                explained.remove(shape);
+            }
+        }
+    }
+
+    private List<String> explain(Execution execution) {
+        ConnectionPool source = pool;
+        if (source == null) {
+            return List.of("(not captured: no connection pool)");
+        }
+        List<String> plan = new ArrayList<>();
+        // the driver's own connection, so the EXPLAIN is neither cached nor timed itself
+        try (Connection pooled = source.borrow();
+             PreparedStatement pstmt = pooled.unwrap(Connection.class).prepareStatement("EXPLAIN " + execution.sql)) {
+            for (Map.Entry<Integer, Object> parameter : execution.parameters.entrySet()) {
+                Object value = parameter.getValue();
+                if (value instanceof InputStream || value instanceof Reader) {
+                    return List.of("(not captured: statement binds a stream)");
+                }
+                pstmt.setObject(parameter.getKey(), value);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    StringBuilder row = new StringBuilder();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        if (meta.getColumnCount() > 1) {
+                            row.append(i > 1 ? " | " : "").append(meta.getColumnLabel(i)).append('=');
+                        }
+                        row.append(rs.getString(i));
+                    }
+                    // H2 returns the plan as one multi-line string
+                    for (String line : row.toString().split("\\R")) {
+                        plan.add(line);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plan.add("(not captured: " + e.getMessage() + ")");
+        }
+        return plan;
+    }
+
+    /** The statement with literals and parameter lists folded, so each query has one shape. */
+    static String shape(String sql) {
+        String shape = LITERALS.matcher(sql).replaceAll("?");
+        shape = PARAMETER_LISTS.matcher(shape).replaceAll("?, ...");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    private static String redact(Map<Integer, Object> parameters) {
+        StringBuilder out = new StringBuilder("[");
+        for (Object value : parameters.values()) {
+            if (out.length() > 1) {
+                out.append(", ");
+            }
+            if (value == null) {
+                out.append("null");
+            } else if (value instanceof String) {
+                out.append("string(").append(((String) value).length()).append(')');
+            } else {
+                out.append(value.getClass().getSimpleName().toLowerCase(Locale.ROOT));
+            }
+        }
+        return out.append(']').toString();
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** One execute call, open until its rows have been read; {@code nanos} is the time spent in the driver. */
+    private static final class Execution {
+        final String sql;
+        final Map<Integer, Object> parameters;
+        final int batchSize;
+        final String operation = DaoMetrics.currentOperation();
+        long nanos;
+        long rows = -1;
+        boolean done;
+
+        Execution(String sql, Map<Integer, Object> parameters, int batchSize) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.batchSize = batchSize;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private int batchSize;
+        private String batchSql;
+        private Execution open;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            switch (name) {
+                case "close": {
+                    Object result = call(target, method, args);
+                    finish();
+                    return result;
+                }
+                case "clearParameters":
+                    parameters.clear();
+                    break;
+                case "addBatch":
+                    batchSize++;
+                    if (args != null && args.length == 1) {
+                        batchSql = (String) args[0];
+                    }
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    // setInt(1, ...), setString(2, ...), setNull(3, type): remember the value for EXPLAIN
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+                    break;
+            }
+            return call(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finish();
+            boolean batch = method.getName().startsWith("executeBatch")
+                    || method.getName().equals("executeLargeBatch");
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                    : batch && sql == null ? batchSql : sql;
+            Execution execution = new Execution(text, new TreeMap<>(parameters), batch ? batchSize : 0);
+            if (batch) {
+                batchSize = 0;
+            }
+            long start = System.nanoTime();
+            Object result = call(target, method, args);
+            execution.nanos += System.nanoTime() - start;
+            if (result instanceof ResultSet) {
+                execution.rows = 0;
+                open = execution;
+                ResultSet rs = (ResultSet) result;
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                        new ResultSetHandler(rs, execution));
+            }
+            execution.rows = rowsAffected(result);
+            complete(execution);
+            return result;
+        }
+
+        private long rowsAffected(Object result) throws SQLException {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof Boolean) {
+                return (Boolean) result ? -1 : target.getUpdateCount();
+            }
+            long total = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    total += Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    total += Math.max(0, count);
+                }
+            }
+            return total;
+        }
+
+        private void finish() {
+            if (open != null) {
+                complete(open);
+                open = null;
+            }
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Execution execution;
+
+        ResultSetHandler(ResultSet target, Execution execution) {
+            this.target = target;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    long start = System.nanoTime();
+                    Object more = call(target, method, args);
+                    execution.nanos += System.nanoTime() - start;
+                    if (Boolean.TRUE.equals(more)) {
+                        execution.rows++;
+                    }
+                    return more;
+                }
+                case "close":
+                    call(target, method, args);
+                    complete(execution);
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return call(target, method, args);
+            }
+        }
+    }
+
+    private void complete(Execution execution) {
+        if (!execution.done) {
+            execution.done = true;
+            record(execution);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package healthcamp.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepared statements of one pooled connection, kept open across borrows so
+ * a DAO preparing the same SQL again gets the already parsed and planned
+ * statement back. With MySQL's server-side prepared statements the server
+ * keeps the plan too, so a cache hit costs no round trip at all.
+ * <p>
+ * Only statements not in use are held; closing one hands it back with its
+ * parameters cleared and its result sets closed, and the least recently
+ * used is closed once more than {@code maxSize} are idle. The fetch size the
+ * streaming reads set is put back to what it was; a statement whose timeout
+ * or other settings were changed is closed for real, so the next caller
+ * never inherits them. Used by the one thread that has the connection
+ * borrowed, so it needs no locking.
+ */
+final class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final Map<String, PreparedStatement> idle;
+
+    StatementCache(Connection physical, int maxSize, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                evictions.increment();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /** {@code prepareStatement} with the caller's arguments, from the cache when an idle match exists. */
+    PreparedStatement prepare(Method method, Object[] args) throws InvocationTargetException, IllegalAccessException {
+        // the SQL plus any result set type or generated-keys argument
+        String key = Arrays.deepToString(args);
+        PreparedStatement statement = idle.remove(key);
+        if (statement != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            statement = (PreparedStatement) method.invoke(physical, args);
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, new CachedStatementHandler(key, statement));
+    }
+
+    private void giveBack(String key, PreparedStatement statement, List<ResultSet> results, Integer fetchSize) {
+        try {
+            for (ResultSet rs : results) {
+                rs.close();
+            }
+            if (fetchSize != null) {
+                statement.setFetchSize(fetchSize);
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+        // a second statement for the same SQL was in use at the same time; keep one
+        PreparedStatement displaced = idle.put(key, statement);
+        if (displaced != null) {
+            closeQuietly(displaced);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private final class CachedStatementHandler implements InvocationHandler {
+        private final String key;
+        private final PreparedStatement target;
+        private final List<ResultSet> results = new ArrayList<>(1);
+        private boolean closed;
+        private boolean changed;
+        private Integer fetchSizeOnPrepare;
+
+        CachedStatementHandler(String key, PreparedStatement target) {
+            this.key = key;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (changed) {
+                            target.close();
+                        } else {
+                            giveBack(key, target, results, fetchSizeOnPrepare);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "closeOnCompletion":
+                    changed = true;
+                    break;
+                case "setFetchSize":
+                    if (fetchSizeOnPrepare == null && !closed) {
+                        fetchSizeOnPrepare = target.getFetchSize();
+                    }
+                    break;
+                default:
+                    // setFetchSize(n), setQueryTimeout(s)... change the statement; setInt(1, x) only binds
+                    if (name.startsWith("set") && (args == null || args.length < 2 || !(args[0] instanceof Integer))) {
+                        changed = true;
+                    }
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if (name.startsWith("execute")) {
+                // executing again closes the previous results
+                results.clear();
+            }
+            try {
+                Object result = method.invoke(target, args);
+                if (result instanceof ResultSet) {
+                    results.add((ResultSet) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
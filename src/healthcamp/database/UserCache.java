@@ -0,0 +1,120 @@
+package healthcamp.database;
+
+import healthcamp.model.User;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of login identifiers (username or email) to users.
+ * Identifiers with no matching user are cached too, for a shorter time, so
+ * repeated failed logins do not reach the database.
+ */
+public final class UserCache {
+
+    /** Marker returned by {@link #get} for identifiers known not to exist. */
+    public static final User ABSENT = new User();
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserCache(int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000;
+    }
+
+    /**
+     * Returns the cached lookup for {@code identifier}: a user, {@link #ABSENT}
+     * if it is known not to exist, or {@code null} if the cache cannot answer.
+     */
+    public synchronized User get(String identifier) {
+        Entry entry = entries.get(identifier);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long age = System.nanoTime() - entry.cachedAt;
+        if (age >= (entry.user == null ? negativeTtlNanos : ttlNanos)) {
+            entries.remove(identifier);
+            misses.increment();
+            return null;
+        }
+        if (entry.user == null) {
+            negativeHits.increment();
+            return ABSENT;
+        }
+        hits.increment();
+        return entry.user;
+    }
+
+    /** Snapshot to pass to {@link #put} for a lookup that is about to run. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a lookup result; {@code null} records a miss. A miss is dropped
+     * if a user was created after {@code generation} was taken.
+     */
+    public synchronized void put(String identifier, User user, long generation) {
+        if (user == null && generation != this.generation) {
+            return;
+        }
+        entries.put(identifier, new Entry(user, System.nanoTime()));
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /** A user was created; identifiers cached as missing may now exist. */
+    public synchronized void forgetMissing() {
+        generation++;
+        entries.values().removeIf(entry -> entry.user == null);
+    }
+
+    /** Drops every entry that refers to the user, e.g. after a password change. */
+    public synchronized void forget(int userId) {
+        entries.values().removeIf(entry -> entry.user != null && entry.user.getId() == userId);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getNegativeHits() { return negativeHits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d negativeHits=%d misses=%d evictions=%d size=%d",
+                getHits(), getNegativeHits(), getMisses(), getEvictions(), size());
+    }
+
+    private static final class Entry {
+        final User user;
+        final long cachedAt;
+
+        Entry(User user, long cachedAt) {
+            this.user = user;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
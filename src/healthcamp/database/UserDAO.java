@@ -1,5 +1,6 @@
 package healthcamp.database;
 
+import healthcamp.metrics.DaoMetrics;
 import healthcamp.model.User;
 import java.sql.*;
 import java.util.ArrayList;
@@ -7,92 +8,159 @@ import java.util.List;
 
 public class UserDAO {
 
+    private static final String USER_COLUMNS = "id, username, email, password, created_at";
+
+    private static final DaoMetrics.Operation CREATE_OP = DaoMetrics.operation("user.create");
+    private static final DaoMetrics.Operation UPDATE_PASSWORD_OP = DaoMetrics.operation("user.updatePassword");
+    private static final DaoMetrics.Operation FIND_OP = DaoMetrics.operation("user.find");
+    private static final DaoMetrics.Operation AVAILABILITY_OP = DaoMetrics.operation("user.checkAvailability");
+    private static final DaoMetrics.Operation GET_ALL_OP = DaoMetrics.operation("user.getAll");
+
+    private static final UserCache cache = new UserCache(
+        DatabaseManager.getConfig().getInt("userCache.maxEntries", 1000),
+        DatabaseManager.getConfig().getLong("userCache.ttlSeconds", 600) * 1000,
+        DatabaseManager.getConfig().getLong("userCache.negativeTtlSeconds", 30) * 1000);
+
+    public static UserCache getCache() {
+        return cache;
+    }
+
+    @SuppressWarnings("try")
     public boolean createUser(User user) {
         String sql = "INSERT INTO users (username, email, password, created_at) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DatabaseManager.getConnection();
+        try (DaoMetrics.Timer timer = CREATE_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, user.getUsername());
             ps.setString(2, user.getEmail());
             ps.setString(3, user.getPassword());
             ps.setTimestamp(4, Timestamp.valueOf(user.getCreatedAt()));
             ps.executeUpdate();
+            cache.forgetMissing();
             return true;
         } catch (SQLException e) {
+            CREATE_OP.failed(e);
             e.printStackTrace();
             return false;
         }
     }
 
-    public User findByUsernameOrEmail(String usernameOrEmail) {
-        String sql = "SELECT * FROM users WHERE username = ? OR email = ?";
-        try (Connection conn = DatabaseManager.getConnection();
+    @SuppressWarnings("try")
+    public boolean updatePassword(int userId, String password) {
+        String sql = "UPDATE users SET password = ? WHERE id = ?";
+        try (DaoMetrics.Timer timer = UPDATE_PASSWORD_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, usernameOrEmail);
-            ps.setString(2, usernameOrEmail);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                User user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setEmail(rs.getString("email"));
-                user.setPassword(rs.getString("password"));
-                user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                return user;
-            }
+            ps.setString(1, password);
+            ps.setInt(2, userId);
+            boolean updated = ps.executeUpdate() > 0;
+            cache.forget(userId);
+            return updated;
         } catch (SQLException e) {
+            UPDATE_PASSWORD_OP.failed(e);
             e.printStackTrace();
+            return false;
         }
-        return null;
     }
 
-    public boolean isUsernameTaken(String username) {
-        String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
-        try (Connection conn = DatabaseManager.getConnection();
+    /**
+     * Looks the identifier up as a username first and then as an email.
+     * Each branch of the UNION uses its own unique index, which an OR across
+     * the two columns cannot. Results, including misses, are cached.
+     */
+    @SuppressWarnings("try")
+    public User findByUsernameOrEmail(String usernameOrEmail) {
+        User cached = cache.get(usernameOrEmail);
+        if (cached != null) {
+            return cached == UserCache.ABSENT ? null : cached;
+        }
+        long generation = cache.generation();
+        String sql = "SELECT " + USER_COLUMNS + " FROM ("
+                + " SELECT 0 AS pri, " + USER_COLUMNS + " FROM users WHERE username = ?"
+                + " UNION ALL"
+                + " SELECT 1 AS pri, " + USER_COLUMNS + " FROM users WHERE email = ?"
+                + ") u ORDER BY pri LIMIT 1";
+        try (DaoMetrics.Timer timer = FIND_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, username);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+            ps.setString(1, usernameOrEmail);
+            ps.setString(2, usernameOrEmail);
+            try (ResultSet rs = ps.executeQuery()) {
+                User user = rs.next() ? extractUser(rs) : null;
+                cache.put(usernameOrEmail, user, generation);
+                return user;
             }
         } catch (SQLException e) {
+            FIND_OP.failed(e);
             e.printStackTrace();
         }
-        return false;
+        return null;
     }
 
-    public boolean isEmailTaken(String email) {
-        String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
-        try (Connection conn = DatabaseManager.getConnection();
+    /**
+     * Checks both signup fields in one round-trip. Returns {@code null} if
+     * the query failed.
+     */
+    @SuppressWarnings("try")
+    public Availability checkAvailability(String username, String email) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM users WHERE username = ?),"
+                + " EXISTS (SELECT 1 FROM users WHERE email = ?)";
+        try (DaoMetrics.Timer timer = AVAILABILITY_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, email);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+            ps.setString(1, username);
+            ps.setString(2, email);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new Availability(rs.getBoolean(1), rs.getBoolean(2));
+                }
             }
         } catch (SQLException e) {
+            AVAILABILITY_OP.failed(e);
             e.printStackTrace();
         }
-        return false;
+        return null;
     }
 
+    @SuppressWarnings("try")
     public List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users ORDER BY created_at DESC";
-        try (Connection conn = DatabaseManager.getConnection();
+        String sql = "SELECT " + USER_COLUMNS + " FROM users ORDER BY created_at DESC";
+        try (DaoMetrics.Timer timer = GET_ALL_OP.start();
+             Connection conn = DatabaseManager.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                User user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setEmail(rs.getString("email"));
-                user.setPassword(rs.getString("password"));
-                user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                users.add(user);
+                users.add(extractUser(rs));
             }
         } catch (SQLException e) {
+            GET_ALL_OP.failed(e);
             e.printStackTrace();
         }
         return users;
     }
+
+    private User extractUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setUsername(rs.getString("username"));
+        user.setEmail(rs.getString("email"));
+        user.setPassword(rs.getString("password"));
+        user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        DaoMetrics.row(12 + DaoMetrics.bytes(user.getUsername(), user.getEmail(), user.getPassword()));
+        return user;
+    }
+
+    public static final class Availability {
+        private final boolean usernameTaken;
+        private final boolean emailTaken;
+
+        Availability(boolean usernameTaken, boolean emailTaken) {
+            this.usernameTaken = usernameTaken;
+            this.emailTaken = emailTaken;
+        }
+
+        public boolean isUsernameTaken() { return usernameTaken; }
+        public boolean isEmailTaken() { return emailTaken; }
+    }
 }
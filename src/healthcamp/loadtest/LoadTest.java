@@ -0,0 +1,292 @@
+package healthcamp.loadtest;
+
+import healthcamp.database.CachingPatientDAO;
+import healthcamp.database.DatabaseConfig;
+import healthcamp.database.DatabaseManager;
+import healthcamp.database.PatientDAO;
+import healthcamp.database.PatientStatsDAO;
+import healthcamp.database.PatientWritePipeline;
+import healthcamp.database.UserDAO;
+import healthcamp.metrics.LatencyHistogram;
+import healthcamp.model.PatientRecord;
+import healthcamp.model.User;
+import healthcamp.security.PasswordHasher;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load test simulating a busy camp. Each desk is a virtual thread
+ * that adds, searches, updates and reports through the DAOs the app uses,
+ * paced so that all desks together issue {@code --rate} operations per
+ * second. Latency is measured from when an operation was due rather than
+ * when it started, so a database that falls behind shows up in the
+ * percentiles instead of silently lowering the rate.
+ * <p>
+ * Runs against whatever database {@code healthcamp.properties} points at,
+ * as a dedicated {@code loadtest} user. For a camp of 5,000 patients over an
+ * 8-hour day with 40% adds, the average is 0.17 adds and 0.43 operations a
+ * second; test at several times that to cover the morning rush.
+ * <pre>
+ * LoadTest [--desks 20] [--rate 5] [--duration 60] [--interval 10]
+ *          [--mix add=40,search=40,update=10,report=10] [--seed 1]
+ * </pre>
+ */
+public final class LoadTest {
+
+    enum Operation { ADD, SEARCH, UPDATE, REPORT }
+
+    private static final int RECENT_PATIENTS = 1024;
+
+    private final int desks;
+    private final double rate;
+    private final long durationNanos;
+    private final long intervalNanos;
+    private final int[] mix = new int[Operation.values().length];
+    private final PatientGenerator generator;
+
+    private final PatientDAO patientDAO;
+    private final PatientWritePipeline pipeline;
+    private final PatientStatsDAO statsDAO = new PatientStatsDAO();
+    private final Map<Operation, LatencyHistogram> intervals = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> totals = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final AtomicReferenceArray<PatientRecord> recent = new AtomicReferenceArray<>(RECENT_PATIENTS);
+    private final AtomicLong added = new AtomicLong();
+    private int userId;
+    private long startNanos;
+    private long lastReportNanos;
+
+    LoadTest(Map<String, String> options) {
+        this.desks = Integer.parseInt(options.getOrDefault("desks", "20"));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "5"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "60")));
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("interval", "10")));
+        this.generator = new PatientGenerator(Long.parseLong(options.getOrDefault("seed", "1")), LocalDate.now());
+        parseMix(options.getOrDefault("mix", "add=40,search=40,update=10,report=10"));
+        if (desks < 1 || rate <= 0) {
+            throw new IllegalArgumentException("--desks and --rate must be positive");
+        }
+
+        DatabaseConfig config = DatabaseManager.getConfig();
+        this.patientDAO = config.getBoolean("cache.enabled", true) ? new CachingPatientDAO() : new PatientDAO();
+        this.pipeline = config.getBoolean("pipeline.enabled", false) ? PatientWritePipeline.shared() : null;
+        for (Operation operation : Operation.values()) {
+            intervals.put(operation, new LatencyHistogram());
+            totals.put(operation, new LatencyHistogram());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    private void parseMix(String spec) {
+        int sum = 0;
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            Operation operation = Operation.valueOf(pair[0].trim().toUpperCase());
+            mix[operation.ordinal()] = Integer.parseInt(pair[1].trim());
+            sum += mix[operation.ordinal()];
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("--mix needs at least one positive weight");
+        }
+        // cumulative, for picking with one random number
+        for (int i = 1; i < mix.length; i++) {
+            mix[i] += mix[i - 1];
+        }
+    }
+
+    void run() throws InterruptedException {
+        DatabaseManager.initializeDatabase();
+        userId = loadTestUser();
+        System.out.printf("Load test: %d desks, %.2f ops/s for %d s as user %d (pipeline %s)%n",
+                desks, rate, TimeUnit.NANOSECONDS.toSeconds(durationNanos), userId, pipeline != null ? "on" : "off");
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        reporter.scheduleAtFixedRate(this::reportInterval, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+
+        // each desk runs at rate / desks, started out of phase with the others
+        long period = (long) (desks * 1_000_000_000L / rate);
+        List<Thread> threads = new ArrayList<>(desks);
+        for (int desk = 0; desk < desks; desk++) {
+            PatientGenerator deskGenerator = generator.split();
+            long firstDue = startNanos + period * desk / desks;
+            threads.add(Thread.ofVirtual().name("desk-" + desk).start(() -> desk(deskGenerator, firstDue, period)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        reporter.shutdownNow();
+        reportInterval();
+        reportTotals();
+        PatientWritePipeline.shutdown();
+        DatabaseManager.shutdown();
+    }
+
+    private int loadTestUser() {
+        UserDAO userDAO = new UserDAO();
+        User user = userDAO.findByUsernameOrEmail("loadtest");
+        if (user == null) {
+            String password = PasswordHasher.getDefault().hash(UUID.randomUUID().toString());
+            userDAO.createUser(new User("loadtest", "loadtest@example.invalid", password));
+            user = userDAO.findByUsernameOrEmail("loadtest");
+        }
+        if (user == null) {
+            throw new IllegalStateException("Could not create the loadtest user");
+        }
+        return user.getId();
+    }
+
+    private void desk(PatientGenerator deskGenerator, long firstDue, long period) {
+        long end = startNanos + durationNanos;
+        for (long due = firstDue; due < end; due += period) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = pick();
+            boolean ok;
+            try {
+                ok = perform(operation, deskGenerator);
+            } catch (RuntimeException e) {
+                ok = false;
+            }
+            long latency = System.nanoTime() - due;
+            intervals.get(operation).record(latency);
+            if (!ok) {
+                errors.get(operation).increment();
+            }
+        }
+    }
+
+    private Operation pick() {
+        int r = ThreadLocalRandom.current().nextInt(mix[mix.length - 1]);
+        for (Operation operation : Operation.values()) {
+            if (r < mix[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        return Operation.ADD;
+    }
+
+    private boolean perform(Operation operation, PatientGenerator deskGenerator) {
+        switch (operation) {
+            case ADD: {
+                PatientRecord patient = deskGenerator.next();
+                PatientRecord saved = pipeline != null
+                        ? pipeline.submit(userId, patient).join()
+                        : patientDAO.addPatient(patient, userId);
+                if (saved == null) {
+                    return false;
+                }
+                recent.set((int) (added.getAndIncrement() % RECENT_PATIENTS), new PatientRecord(saved));
+                return true;
+            }
+            case SEARCH:
+                patientDAO.searchPatients(deskGenerator.searchKeyword(), userId);
+                return true;
+            case UPDATE: {
+                long count = added.get();
+                if (count == 0) {
+                    return perform(Operation.ADD, deskGenerator);
+                }
+                PatientRecord patient = recent.get((int) (ThreadLocalRandom.current().nextLong(count) % RECENT_PATIENTS));
+                if (patient == null) {
+                    return true;
+                }
+                patient = new PatientRecord(patient);
+                patient.setTreatment(patient.getTreatment() + "; " + deskGenerator.treatmentFollowUp());
+                return patientDAO.updatePatient(patient) != null;
+            }
+            case REPORT: {
+                LocalDate today = LocalDate.now();
+                patientDAO.getTodayPatientCount(userId);
+                statsDAO.getBreakdown(userId, PatientStatsDAO.Dimension.DIAGNOSIS, today.minusDays(30), today);
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private synchronized void reportInterval() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - lastReportNanos) / 1e9);
+        lastReportNanos = now;
+        StringBuilder line = new StringBuilder(String.format("%7.1fs", (now - startNanos) / 1e9));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram interval = intervals.get(operation).getAndReset();
+            totals.get(operation).add(interval);
+            if (interval.getCount() > 0) {
+                line.append(String.format("  %s %.1f/s p50=%s p99=%s", operation.name().toLowerCase(),
+                        interval.getCount() / seconds,
+                        millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99))));
+            }
+        }
+        System.out.println(line);
+    }
+
+    private void reportTotals() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long operations = 0;
+        System.out.printf("%n%-7s %8s %8s %9s %9s %9s %9s %9s %9s %7s%n",
+                "op", "count", "ops/s", "mean", "p50", "p90", "p99", "p99.9", "max", "errors");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram total = totals.get(operation);
+            operations += total.getCount();
+            System.out.printf("%-7s %8d %8.2f %9s %9s %9s %9s %9s %9s %7d%n", operation.name().toLowerCase(),
+                    total.getCount(), total.getCount() / seconds, millis((long) total.getMeanNanos()),
+                    millis(total.getValueAtPercentile(50)), millis(total.getValueAtPercentile(90)),
+                    millis(total.getValueAtPercentile(99)), millis(total.getValueAtPercentile(99.9)),
+                    millis(total.getMaxNanos()), errors.get(operation).sum());
+        }
+        System.out.printf("%noverall %d operations, %.2f ops/s achieved of %.2f targeted%n",
+                operations, operations / seconds, rate);
+        System.out.println("Pool: " + DatabaseManager.getPoolStats());
+        if (patientDAO instanceof CachingPatientDAO caching) {
+            System.out.println("Patient cache: " + caching.getStats());
+        }
+        if (pipeline != null) {
+            System.out.println("Write pipeline: " + pipeline.getStats());
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2fms", nanos / 1e6);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                System.err.println("Usage: LoadTest [--desks N] [--rate OPS_PER_SECOND] [--duration SECONDS]"
+                        + " [--interval SECONDS] [--mix add=40,search=40,update=10,report=10] [--seed N]");
+                System.exit(2);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        try {
+            new LoadTest(options).run();
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package healthcamp.loadtest;
+
+import healthcamp.model.PatientRecord;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic patients with the skew of a real camp rather than uniform noise.
+ * A few first names and surnames are very common and the rest form a long
+ * tail, fevers and colds dominate the diagnoses, symptoms follow the
+ * diagnosis, and ages cluster around children and older adults. Phone
+ * numbers are ten-digit mobile numbers, with a share reused by family
+ * members registering together.
+ * <p>
+ * Not thread-safe; give each worker its own, seeded from a shared one with
+ * {@link #split()}.
+ */
+public final class PatientGenerator {
+
+    private static final String[] FIRST_NAMES = {
+        "Ramesh", "Sunita", "Lakshmi", "Raju", "Priya", "Mohammed", "Anita", "Suresh", "Kavita", "Ravi",
+        "Geeta", "Arjun", "Pooja", "Vijay", "Meena", "Abdul", "Rekha", "Santosh", "Asha", "Manoj",
+        "Fatima", "Deepak", "Savitri", "Ganesh", "Nisha", "Harish", "Shanti", "Imran", "Usha", "Prakash",
+        "Radha", "Anil", "Jyoti", "Mahesh", "Kamala", "Joseph", "Sarita", "Dinesh", "Parvati", "Kiran"
+    };
+    private static final String[] SURNAMES = {
+        "Kumar", "Devi", "Singh", "Sharma", "Patel", "Reddy", "Khan", "Yadav", "Das", "Nair",
+        "Gupta", "Rao", "Naidu", "Verma", "Pillai", "Iyer", "Shaikh", "Joshi", "Mishra", "Thomas"
+    };
+    private static final String[] GENDERS = {"Female", "Male", "Other"};
+    private static final double[] GENDER_WEIGHTS = {0.53, 0.46, 0.01};
+
+    // share of visits per diagnosis, roughly what a general camp sees
+    private static final String[] DIAGNOSES = {
+        "Viral fever", "Common cold", "Hypertension", "Diabetes", "Gastritis", "Anemia",
+        "Skin infection", "Arthritis", "Malaria", "Asthma", "Conjunctivitis", "Typhoid"
+    };
+    private static final double[] DIAGNOSIS_WEIGHTS = {
+        0.22, 0.18, 0.12, 0.10, 0.08, 0.07, 0.06, 0.05, 0.04, 0.04, 0.03, 0.01
+    };
+    private static final String[][] SYMPTOMS = {
+        {"fever and body ache", "fever with headache", "high fever since two days"},
+        {"runny nose and sneezing", "sore throat and cough", "blocked nose"},
+        {"headache and dizziness", "no symptoms, routine check", "blurred vision"},
+        {"frequent urination", "excessive thirst", "tingling in feet"},
+        {"burning in stomach", "acidity after meals", "nausea and bloating"},
+        {"fatigue and weakness", "pale skin", "breathlessness on walking"},
+        {"itchy rash", "boils on arm", "red patches on skin"},
+        {"knee pain", "joint stiffness in the morning", "back pain"},
+        {"fever with chills", "shivering and sweating", "fever every other day"},
+        {"wheezing", "shortness of breath at night", "chest tightness"},
+        {"red eyes", "watery and itchy eyes", "eye discharge"},
+        {"prolonged fever", "abdominal pain and fever", "loss of appetite"}
+    };
+    private static final String[][] TREATMENTS = {
+        {"Paracetamol, rest and fluids"}, {"Antihistamine, steam inhalation"},
+        {"Amlodipine, reduce salt, review in 2 weeks"}, {"Metformin, diet advice"},
+        {"Pantoprazole before breakfast"}, {"Iron and folic acid for 3 months"},
+        {"Antiseptic cream, keep dry"}, {"Ibuprofen, exercises"},
+        {"Referred for blood smear, antimalarials"}, {"Salbutamol inhaler"},
+        {"Antibiotic eye drops"}, {"Referred to district hospital"}
+    };
+
+    private final SplittableRandom random;
+    private final double[] firstNameWeights = zipf(FIRST_NAMES.length, 1.1);
+    private final double[] surnameWeights = zipf(SURNAMES.length, 1.3);
+    private final LocalDate visitDate;
+    private String lastPhone;
+
+    public PatientGenerator(long seed, LocalDate visitDate) {
+        this(new SplittableRandom(seed), visitDate);
+    }
+
+    private PatientGenerator(SplittableRandom random, LocalDate visitDate) {
+        this.random = random;
+        this.visitDate = visitDate;
+    }
+
+    /** An independent generator for another thread. */
+    public PatientGenerator split() {
+        return new PatientGenerator(random.split(), visitDate);
+    }
+
+    public PatientRecord next() {
+        int diagnosis = pick(DIAGNOSIS_WEIGHTS);
+        String[] symptoms = SYMPTOMS[diagnosis];
+        String[] treatments = TREATMENTS[diagnosis];
+        PatientRecord patient = new PatientRecord(firstName() + " " + SURNAMES[pick(surnameWeights)], age(),
+                GENDERS[pick(GENDER_WEIGHTS)], phone(), symptoms[random.nextInt(symptoms.length)],
+                DIAGNOSES[diagnosis], treatments[random.nextInt(treatments.length)], null);
+        patient.setVisitDate(visitDate);
+        return patient;
+    }
+
+    /** What a desk types into search: mostly names, then phone prefixes, then diagnoses. */
+    public String searchKeyword() {
+        int kind = random.nextInt(100);
+        if (kind < 60) {
+            String name = firstName();
+            return random.nextBoolean() ? name : name.substring(0, Math.min(name.length(), 3 + random.nextInt(3)));
+        }
+        if (kind < 85) {
+            return phone().substring(0, 5 + random.nextInt(4));
+        }
+        return DIAGNOSES[pick(DIAGNOSIS_WEIGHTS)];
+    }
+
+    public String treatmentFollowUp() {
+        String[] followUps = {"Review after 1 week", "Continue medication", "Referred to PHC", "Lab tests advised"};
+        return followUps[random.nextInt(followUps.length)];
+    }
+
+    private String firstName() {
+        return FIRST_NAMES[pick(firstNameWeights)];
+    }
+
+    /** Children and older adults come most; working-age adults least. */
+    private int age() {
+        int band = random.nextInt(100);
+        if (band < 25) {
+            return random.nextInt(13);
+        }
+        if (band < 45) {
+            return 13 + random.nextInt(22);
+        }
+        if (band < 70) {
+            return 35 + random.nextInt(20);
+        }
+        return Math.min(99, 55 + random.nextInt(30) + random.nextInt(10));
+    }
+
+    private String phone() {
+        // families register one after another and give the same number
+        if (lastPhone != null && random.nextInt(100) < 15) {
+            return lastPhone;
+        }
+        lastPhone = (6 + random.nextInt(4)) + String.format("%09d", random.nextInt(1_000_000_000));
+        return lastPhone;
+    }
+
+    private int pick(double[] weights) {
+        double r = random.nextDouble();
+        for (int i = 0; i < weights.length - 1; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static double[] zipf(int n, double exponent) {
+        double[] weights = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = 1 / Math.pow(i + 1, exponent);
+            total += weights[i];
+        }
+        for (int i = 0; i < n; i++) {
+            weights[i] /= total;
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,129 @@
+package healthcamp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing, row, byte, error and connection-wait counters for every DAO
+ * operation. Each DAO method owns a static {@link Operation} and times its
+ * body with {@code try (Timer timer = OPERATION.start(); ...)}; while the
+ * timer is open, rows mapped and connections borrowed on the same thread
+ * are credited to it, so the DAOs and the pool need no extra plumbing.
+ * Such a timer is only ever closed, never read, which {@code -Xlint:try}
+ * reports; the timed methods carry {@code @SuppressWarnings("try")} for it.
+ * <p>
+ * All recording is lock-free and allocation-free apart from the timer
+ * itself. Read through {@link #operations()} by the diagnostics window and
+ * the Prometheus endpoint.
+ */
+public final class DaoMetrics {
+
+    private static final ConcurrentMap<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Timer> CURRENT = new ThreadLocal<>();
+
+    private DaoMetrics() {}
+
+    /** The operation named {@code name}, created on first use. */
+    public static Operation operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, Operation::new);
+    }
+
+    /** Every operation recorded so far, sorted by name. */
+    public static List<Operation> operations() {
+        List<Operation> operations = new ArrayList<>(OPERATIONS.values());
+        operations.sort((a, b) -> a.name.compareTo(b.name));
+        return operations;
+    }
+
+    /** Credits a mapped row of about {@code bytes} to the operation open on this thread, if any. */
+    public static void row(long bytes) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            timer.operation.rows.increment();
+            timer.operation.bytes.add(bytes);
+        }
+    }
+
+    /** Credits time spent waiting for a pooled connection to the operation open on this thread. */
+    public static void connectionAcquired(long nanos) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            timer.operation.acquire.record(nanos);
+        }
+    }
+
+    /** Name of the operation open on this thread, or null outside a timed DAO call. */
+    public static String currentOperation() {
+        Timer timer = CURRENT.get();
+        return timer != null ? timer.operation.name : null;
+    }
+
+    /** Rough size of the text columns of a row as the driver fetched them. */
+    public static long bytes(String... values) {
+        long total = 0;
+        for (String value : values) {
+            if (value != null) {
+                total += value.length();
+            }
+        }
+        return total;
+    }
+
+    public static final class Operation {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private volatile String lastError;
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        public Timer start() {
+            return new Timer(this);
+        }
+
+        /** Counts a failure and keeps its message for the diagnostics window; the caller still logs it. */
+        public void failed(Exception e) {
+            errors.increment();
+            lastError = e.toString();
+        }
+
+        public String getName() { return name; }
+        public LatencyHistogram getLatency() { return latency; }
+        public LatencyHistogram getConnectionAcquire() { return acquire; }
+        public long getRows() { return rows.sum(); }
+        public long getBytes() { return bytes.sum(); }
+        public long getErrors() { return errors.sum(); }
+        public String getLastError() { return lastError; }
+    }
+
+    /** One timed call. Nested timers credit rows and connections to the innermost. */
+    public static final class Timer implements AutoCloseable {
+        private final Operation operation;
+        private final Timer outer;
+        private final long start = System.nanoTime();
+
+        private Timer(Operation operation) {
+            this.operation = operation;
+            this.outer = CURRENT.get();
+            CURRENT.set(this);
+        }
+
+        @Override
+        public void close() {
+            operation.latency.record(System.nanoTime() - start);
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+}
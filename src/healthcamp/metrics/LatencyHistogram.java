@@ -0,0 +1,117 @@
+package healthcamp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram. Values below
+ * 128 ns get a bucket each; above that every power of two is split into 64
+ * buckets, so any recorded value is reported within 1.6% while the whole
+ * range up to an hour fits in about 2,400 counters. Recording is lock-free
+ * and allocation-free.
+ * <p>
+ * {@link #getAndReset()} hands back what was recorded since the last call,
+ * which is how the load test prints per-interval percentiles while
+ * {@link #add} accumulates the totals.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final long MAX_VALUE = 3_600_000_000_000L; // one hour in nanoseconds
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Moves everything recorded so far into a new histogram and empties this
+     * one. Values recorded during the move land in one or the other.
+     */
+    public LatencyHistogram getAndReset() {
+        LatencyHistogram interval = new LatencyHistogram();
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.getAndSet(i, 0);
+            if (count != 0) {
+                interval.counts.set(i, count);
+            }
+        }
+        interval.total.set(total.getAndSet(0));
+        interval.sum.set(sum.getAndSet(0));
+        interval.max.set(max.getAndSet(0));
+        return interval;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        total.addAndGet(other.total.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long getTotalNanos() {
+        return sum.get();
+    }
+
+    public double getMeanNanos() {
+        long count = total.get();
+        return count == 0 ? 0 : sum.get() / (double) count;
+    }
+
+    /** The smallest recorded value at or above {@code percentile} (0 to 100) of the samples. */
+    public long getValueAtPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) ((value >>> shift) - HALF);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
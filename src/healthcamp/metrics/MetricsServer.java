@@ -0,0 +1,180 @@
+package healthcamp.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import healthcamp.database.CachingPatientDAO;
+import healthcamp.database.ConnectionPool;
+import healthcamp.database.DatabaseManager;
+import healthcamp.database.UserCache;
+import healthcamp.database.UserDAO;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link DaoMetrics}, the connection pool's state and the patient and
+ * login cache counters at
+ * {@code http://127.0.0.1:<metrics.port>/metrics} in the Prometheus text
+ * format. Bound to the loopback interface only; set {@code metrics.port=0}
+ * to turn it off.
+ * <p>
+ * Latencies are summaries over the whole run: quantiles, sum and count.
+ */
+public final class MetricsServer {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static HttpServer server;
+    private static ExecutorService executor;
+
+    private MetricsServer() {}
+
+    /** Starts the endpoint on {@code metrics.port}, default 9464. A port in use is logged, not fatal. */
+    public static synchronized void start() {
+        int port = DatabaseManager.getConfig().getInt("metrics.port", 9464);
+        if (server != null || port <= 0) {
+            return;
+        }
+        try {
+            HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+            http.setExecutor(executor);
+            http.createContext("/metrics", MetricsServer::handle);
+            http.start();
+            server = http;
+            System.out.println("Metrics available at http://127.0.0.1:" + port + "/metrics");
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint not started on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** The current metrics as Prometheus exposition text. */
+    public static String render() {
+        StringBuilder out = new StringBuilder(4096);
+        List<DaoMetrics.Operation> operations = DaoMetrics.operations();
+
+        header(out, "healthcamp_dao_latency_seconds", "summary", "Time spent in each DAO operation.");
+        for (DaoMetrics.Operation operation : operations) {
+            summary(out, "healthcamp_dao_latency_seconds", operation.getName(), operation.getLatency());
+        }
+        header(out, "healthcamp_dao_connection_acquire_seconds", "summary",
+                "Time DAO operations waited for a pooled connection.");
+        for (DaoMetrics.Operation operation : operations) {
+            summary(out, "healthcamp_dao_connection_acquire_seconds", operation.getName(),
+                    operation.getConnectionAcquire());
+        }
+        header(out, "healthcamp_dao_rows_total", "counter", "Rows mapped from result sets.");
+        for (DaoMetrics.Operation operation : operations) {
+            sample(out, "healthcamp_dao_rows_total", operation.getName(), null, operation.getRows());
+        }
+        header(out, "healthcamp_dao_fetched_bytes_total", "counter", "Approximate bytes of row data fetched.");
+        for (DaoMetrics.Operation operation : operations) {
+            sample(out, "healthcamp_dao_fetched_bytes_total", operation.getName(), null, operation.getBytes());
+        }
+        header(out, "healthcamp_dao_errors_total", "counter", "DAO operations that failed with an SQLException.");
+        for (DaoMetrics.Operation operation : operations) {
+            sample(out, "healthcamp_dao_errors_total", operation.getName(), null, operation.getErrors());
+        }
+
+        ConnectionPool.PoolStats pool = DatabaseManager.getPoolStats();
+        header(out, "healthcamp_pool_connections", "gauge", "Pooled connections by state.");
+        out.append("healthcamp_pool_connections{state=\"active\"} ").append(pool.getActive()).append('\n');
+        out.append("healthcamp_pool_connections{state=\"idle\"} ").append(pool.getIdle()).append('\n');
+        header(out, "healthcamp_pool_max_connections", "gauge", "Configured pool size.");
+        out.append("healthcamp_pool_max_connections ").append(pool.getMaxSize()).append('\n');
+        header(out, "healthcamp_pool_waiters", "gauge", "Threads waiting for a connection.");
+        out.append("healthcamp_pool_waiters ").append(pool.getWaiters()).append('\n');
+        header(out, "healthcamp_pool_timeouts_total", "counter", "Borrows that timed out.");
+        out.append("healthcamp_pool_timeouts_total ").append(pool.getTimeouts()).append('\n');
+        header(out, "healthcamp_pool_statement_cache_total", "counter",
+                "prepareStatement calls served from the statement cache (hit) or prepared anew (miss).");
+        out.append("healthcamp_pool_statement_cache_total{result=\"hit\"} ").append(pool.getStatementHits()).append('\n');
+        out.append("healthcamp_pool_statement_cache_total{result=\"miss\"} ").append(pool.getStatementMisses()).append('\n');
+        header(out, "healthcamp_pool_statement_cache_evictions_total", "counter",
+                "Idle prepared statements closed to stay within the cache size.");
+        out.append("healthcamp_pool_statement_cache_evictions_total ").append(pool.getStatementEvictions()).append('\n');
+
+        CachingPatientDAO.CacheStats patients = CachingPatientDAO.getCombinedStats();
+        header(out, "healthcamp_patient_cache_requests_total", "counter",
+                "Patient reads answered from the cache (hit) or loaded from the database (miss).");
+        out.append("healthcamp_patient_cache_requests_total{result=\"hit\"} ").append(patients.getHits()).append('\n');
+        out.append("healthcamp_patient_cache_requests_total{result=\"miss\"} ").append(patients.getMisses()).append('\n');
+        header(out, "healthcamp_patient_cache_evictions_total", "counter",
+                "Cached patient results dropped to stay within cache.maxRowsPerUser.");
+        out.append("healthcamp_patient_cache_evictions_total ").append(patients.getEvictions()).append('\n');
+        header(out, "healthcamp_patient_cache_expirations_total", "counter", "Cached patient results older than the TTL.");
+        out.append("healthcamp_patient_cache_expirations_total ").append(patients.getExpirations()).append('\n');
+        header(out, "healthcamp_patient_cache_invalidations_total", "counter", "Per-user cache clears caused by writes.");
+        out.append("healthcamp_patient_cache_invalidations_total ").append(patients.getInvalidations()).append('\n');
+        header(out, "healthcamp_patient_cache_rows", "gauge", "Patient rows currently held by the cache.");
+        out.append("healthcamp_patient_cache_rows ").append(patients.getRows()).append('\n');
+
+        UserCache users = UserDAO.getCache();
+        header(out, "healthcamp_user_cache_requests_total", "counter",
+                "Login lookups answered from the cache, including known-missing identifiers, or from the database.");
+        out.append("healthcamp_user_cache_requests_total{result=\"hit\"} ").append(users.getHits()).append('\n');
+        out.append("healthcamp_user_cache_requests_total{result=\"negative_hit\"} ").append(users.getNegativeHits()).append('\n');
+        out.append("healthcamp_user_cache_requests_total{result=\"miss\"} ").append(users.getMisses()).append('\n');
+        header(out, "healthcamp_user_cache_evictions_total", "counter", "Cached logins dropped to stay within the cache size.");
+        out.append("healthcamp_user_cache_evictions_total ").append(users.getEvictions()).append('\n');
+        header(out, "healthcamp_user_cache_entries", "gauge", "Login identifiers currently cached.");
+        out.append("healthcamp_user_cache_entries ").append(users.size()).append('\n');
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String operation, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+            sample(out, name, operation, quantile, seconds(histogram.getValueAtPercentile(quantile * 100)));
+        }
+        sample(out, name + "_sum", operation, null, seconds(histogram.getTotalNanos()));
+        sample(out, name + "_count", operation, null, histogram.getCount());
+    }
+
+    private static void sample(StringBuilder out, String name, String operation, Double quantile, Object value) {
+        out.append(name).append("{op=\"").append(escape(operation)).append('"');
+        if (quantile != null) {
+            out.append(",quantile=\"").append(quantile).append('"');
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
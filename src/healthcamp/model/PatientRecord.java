@@ -29,6 +29,18 @@ public class PatientRecord {
         this.visitDate = visitDate;
     }
     
+    public PatientRecord(PatientRecord other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.age = other.age;
+        this.gender = other.gender;
+        this.phone = other.phone;
+        this.symptoms = other.symptoms;
+        this.diagnosis = other.diagnosis;
+        this.treatment = other.treatment;
+        this.visitDate = other.visitDate;
+    }
+    
 
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
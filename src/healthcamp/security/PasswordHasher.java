@@ -0,0 +1,154 @@
+package healthcamp.security;
+
+import healthcamp.database.DatabaseManager;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashes stored as
+ * {@code pbkdf2$<iterations>$<salt>$<hash>} with Base64 salt and hash.
+ * Stored values without that prefix are legacy plaintext passwords; they
+ * still verify, and {@link #needsRehash} reports them so they can be
+ * upgraded after a successful login.
+ * <p>
+ * The default instance picks its iteration count once at startup so that a
+ * single hash takes about {@code password.targetMillis} on this machine,
+ * never going below {@code password.minIterations}. Setting
+ * {@code password.iterations} skips calibration.
+ */
+public final class PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int MAX_ITERATIONS = 10_000_000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static volatile PasswordHasher defaultInstance;
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    /** The shared hasher, calibrated on first use. */
+    public static PasswordHasher getDefault() {
+        PasswordHasher hasher = defaultInstance;
+        if (hasher == null) {
+            synchronized (PasswordHasher.class) {
+                hasher = defaultInstance;
+                if (hasher == null) {
+                    int configured = DatabaseManager.getConfig().getInt("password.iterations", 0);
+                    int iterations = configured > 0 ? configured : calibrate(
+                            DatabaseManager.getConfig().getInt("password.targetMillis", 100),
+                            DatabaseManager.getConfig().getInt("password.minIterations", 100_000));
+                    System.out.println("Password hashing: " + ALGORITHM + ", " + iterations + " iterations");
+                    hasher = defaultInstance = new PasswordHasher(iterations);
+                }
+            }
+        }
+        return hasher;
+    }
+
+    /**
+     * Measures this machine and returns the iteration count at which one hash
+     * takes about {@code targetMillis}, but at least {@code minIterations}.
+     */
+    public static int calibrate(int targetMillis, int minIterations) {
+        char[] sample = "calibration-password".toCharArray();
+        byte[] salt = new byte[SALT_BYTES];
+        int probe = 20_000;
+        derive(sample, salt, probe);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            derive(sample, salt, probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double perIteration = (double) best / probe;
+        // round so repeated calibrations on the same machine usually agree
+        long iterations = Math.round(targetMillis * 1_000_000L / perIteration / 10_000) * 10_000;
+        return (int) Math.max(minIterations, Math.min(MAX_ITERATIONS, iterations));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(password.toCharArray(), salt, iterations);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    /** Constant-time check of {@code password} against a stored hash or legacy plaintext value. */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            if (storedIterations < 1 || storedIterations > MAX_ITERATIONS) {
+                return false;
+            }
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            byte[] actual = derive(password.toCharArray(), salt, storedIterations);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * True for plaintext values and for hashes made with under three quarters
+     * of this hasher's iterations; the margin keeps calibration noise from
+     * rehashing on every login.
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations * 3L / 4;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package healthcamp.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps only the most recent request of one kind alive. Submitting a new
+ * request cancels the previous one, and a result is delivered to the FX
+ * thread only if no newer request has been submitted in the meantime.
+ */
+public class LatestRequest<T> {
+
+    private final AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+
+    public CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request,
+                                       Consumer<? super T> onResult,
+                                       Consumer<Throwable> onError) {
+        CompletableFuture<T> next = request.get();
+        CompletableFuture<T> previous = current.getAndSet(next);
+        if (previous != null && previous != next) {
+            previous.cancel(false);
+        }
+        next.whenCompleteAsync((result, error) -> {
+            if (!current.compareAndSet(next, null)) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause == null) {
+                onResult.accept(result);
+            } else if (!(cause instanceof CancellationException) && onError != null) {
+                onError.accept(cause);
+            }
+        }, ServiceExecutors.fx());
+        return next;
+    }
+
+    public void cancel() {
+        CompletableFuture<T> previous = current.getAndSet(null);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    public boolean isPending() {
+        return current.get() != null;
+    }
+}
@@ -0,0 +1,207 @@
+package healthcamp.service;
+
+import healthcamp.database.CachingPatientDAO;
+import healthcamp.database.DatabaseConfig;
+import healthcamp.database.DatabaseManager;
+import healthcamp.database.OfflinePatientDAO;
+import healthcamp.database.PatientChangeListener;
+import healthcamp.database.PatientDAO;
+import healthcamp.database.PatientIndexRegistry;
+import healthcamp.database.PatientPage;
+import healthcamp.database.PatientSearchIndex;
+import healthcamp.database.PatientSort;
+import healthcamp.database.PatientStatsDAO;
+import healthcamp.database.PatientWritePipeline;
+import healthcamp.model.PatientRecord;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+
+/**
+ * Asynchronous front for {@link PatientDAO}. Every call runs on the database
+ * executor and never on the caller's thread.
+ */
+public class PatientService {
+
+    private final PatientDAO patientDAO;
+    private final PatientWritePipeline writePipeline;
+    private final PatientStatsDAO statsDAO = new PatientStatsDAO();
+
+    public PatientService() {
+        this(createDefaultDAO(), createWritePipeline());
+    }
+
+    public PatientService(PatientDAO patientDAO) {
+        this(patientDAO, null);
+    }
+
+    private PatientService(PatientDAO patientDAO, PatientWritePipeline writePipeline) {
+        this.patientDAO = patientDAO;
+        this.writePipeline = writePipeline;
+    }
+
+    private static PatientDAO createDefaultDAO() {
+        DatabaseConfig config = DatabaseManager.getConfig();
+        PatientDAO dao = config.getBoolean("cache.enabled", true) ? new CachingPatientDAO() : new PatientDAO();
+        return config.getBoolean("offline.enabled", false) ? new OfflinePatientDAO(dao) : dao;
+    }
+
+    /** Group commit for inserts; offline mode already batches through its journal. */
+    private static PatientWritePipeline createWritePipeline() {
+        DatabaseConfig config = DatabaseManager.getConfig();
+        return config.getBoolean("pipeline.enabled", false) && !config.getBoolean("offline.enabled", false)
+                ? PatientWritePipeline.shared() : null;
+    }
+
+    /**
+     * Calls {@code listener} with the user's id each time one of their
+     * journaled patients reaches the database. Runs on the sync thread.
+     */
+    public void addSyncListener(IntConsumer listener) {
+        PatientDAO.addChangeListener(new PatientChangeListener() {
+            @Override
+            public void patientSynced(int userId, int pendingId, PatientRecord patient) {
+                listener.accept(userId);
+            }
+        });
+    }
+
+    public CompletableFuture<Integer> count(int userId) {
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.countPatients(userId), ServiceExecutors.database());
+    }
+
+    /** The {@code limit} rows following {@code after} in {@code sort} order, or the first ones when it is null. */
+    public CompletableFuture<List<PatientRecord>> loadAfter(int userId, PatientSort sort, PatientRecord after, int limit) {
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.getPatientsAfter(userId, sort, after, limit), ServiceExecutors.database());
+    }
+
+    /** A page of patients with a cursor for the next one; see {@link PatientDAO#getPatientsPage}. */
+    public CompletableFuture<PatientPage> loadPage(int userId, PatientSort sort, PatientPage.Cursor after, int pageSize) {
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.getPatientsPage(userId, sort, after, pageSize), ServiceExecutors.database());
+    }
+
+    /** The row {@code skip} rows past {@code after}, to seek from; see {@link PatientDAO#findSeekPosition}. */
+    public CompletableFuture<PatientRecord> seekPosition(int userId, PatientSort sort, PatientRecord after, int skip) {
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.findSeekPosition(userId, sort, after, skip), ServiceExecutors.database());
+    }
+
+    /**
+     * Database matches on name, phone, symptoms and diagnosis come first, so
+     * a fuzzy name hit never hides an exact one; misspelled names and partial
+     * phone numbers found only by the in-memory index fill the rest of
+     * {@code limit}.
+     */
+    public CompletableFuture<List<PatientRecord>> search(String keyword, int userId, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<Integer, PatientRecord> results = new LinkedHashMap<>();
+            for (PatientRecord patient : patientDAO.searchPatients(keyword, userId, limit)) {
+                results.put(patient.getId(), patient);
+            }
+            if (results.size() < limit) {
+                for (PatientRecord patient : PatientIndexRegistry.forUser(userId).lookup(keyword, limit)) {
+                    results.putIfAbsent(patient.getId(), patient);
+                    if (results.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return new ArrayList<>(results.values());
+        }, ServiceExecutors.database());
+    }
+
+    /**
+     * Whether {@link #search} finds exactly the patients containing
+     * {@code keyword}: true for phone numbers, which both the database and
+     * the index match as substrings. Names also get fuzzy index hits and, on
+     * MySQL, full-text word matches.
+     */
+    public static boolean isSubstringSearch(String keyword) {
+        return PatientSearchIndex.isPhoneQuery(keyword) && PatientDAO.isSubstringSearch(keyword);
+    }
+
+    public CompletableFuture<PatientRecord> add(PatientRecord patient, int userId) {
+        if (writePipeline != null) {
+            // submit may wait for room in the queue, so not on the caller's thread
+            return CompletableFuture.supplyAsync(() -> writePipeline.submit(userId, patient), ServiceExecutors.database())
+                    .thenCompose(saved -> saved);
+        }
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.addPatient(patient, userId), ServiceExecutors.database());
+    }
+
+    public CompletableFuture<PatientRecord> update(PatientRecord patient) {
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.updatePatient(patient), ServiceExecutors.database());
+    }
+
+    public CompletableFuture<PatientRecord> delete(int patientId) {
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.deletePatient(patientId), ServiceExecutors.database());
+    }
+
+    public CompletableFuture<Integer> todayCount(int userId) {
+        return CompletableFuture.supplyAsync(
+                () -> patientDAO.getTodayPatientCount(userId), ServiceExecutors.database());
+    }
+
+    public CompletableFuture<Map<LocalDate, Integer>> dailyVisits(int userId, LocalDate from, LocalDate to) {
+        return CompletableFuture.supplyAsync(
+                () -> statsDAO.getDailyVisits(userId, from, to), ServiceExecutors.database());
+    }
+
+    public CompletableFuture<Map<String, Integer>> breakdown(int userId, PatientStatsDAO.Dimension dimension,
+                                                             LocalDate from, LocalDate to) {
+        return CompletableFuture.supplyAsync(
+                () -> statsDAO.getBreakdown(userId, dimension, from, to), ServiceExecutors.database());
+    }
+
+    /** Recomputes the user's daily statistics from the patients table. */
+    public CompletableFuture<Integer> rebuildStats(int userId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return statsDAO.rebuild(userId);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, ServiceExecutors.database());
+    }
+
+    /**
+     * Rebuilds the user's daily statistics if they disagree with the patients
+     * table, as they do after rows were written outside the application.
+     * Completes with whether a rebuild was needed.
+     */
+    public CompletableFuture<Boolean> repairStats(int userId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Map<LocalDate, Integer> drift = statsDAO.findDrift(userId);
+                if (drift.isEmpty()) {
+                    return false;
+                }
+                System.out.println("Daily statistics of user " + userId + " differ from the patients table on "
+                        + drift.size() + " days; rebuilding");
+                statsDAO.rebuild(userId);
+                return true;
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, ServiceExecutors.database());
+    }
+
+    /** Drops and rebuilds the user's search index in the background. */
+    public CompletableFuture<Void> rebuildSearchIndex(int userId) {
+        PatientIndexRegistry.invalidate(userId);
+        return CompletableFuture.runAsync(
+                () -> PatientIndexRegistry.forUser(userId), ServiceExecutors.database());
+    }
+}
@@ -0,0 +1,98 @@
+package healthcamp.service;
+
+import healthcamp.model.PatientRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Remembers the last completed search so that a keyword which only extends
+ * it can be answered by filtering those results instead of querying again.
+ * Refining is only possible when the remembered result was not cut off by
+ * its limit and both keywords are plain substring searches (see
+ * {@link PatientService#isSubstringSearch}); filtering fuzzy or full-text
+ * results would depend on what was typed before. Used from the FX thread only.
+ */
+public class SearchSession {
+
+    private String keyword;
+    private int limit;
+    private boolean truncated;
+    private boolean substring;
+    private List<PatientRecord> results;
+
+    public void remember(String keyword, int limit, List<PatientRecord> results) {
+        this.keyword = keyword;
+        this.limit = limit;
+        this.truncated = results.size() >= limit;
+        this.substring = PatientService.isSubstringSearch(keyword);
+        this.results = List.copyOf(results);
+    }
+
+    /**
+     * Returns the remembered results that still match {@code next}, or
+     * {@code null} if a new query is needed.
+     */
+    public List<PatientRecord> refine(String next) {
+        if (results == null || truncated || !substring || !PatientService.isSubstringSearch(next)) {
+            return null;
+        }
+        String needle = next.toLowerCase(Locale.ROOT);
+        if (!needle.startsWith(keyword.toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        String needleDigits = needle.replaceAll("\\D", "");
+        List<PatientRecord> refined = new ArrayList<>();
+        for (PatientRecord record : results) {
+            if (matches(record, needle, needleDigits)) {
+                refined.add(record);
+            }
+        }
+        return refined;
+    }
+
+    private static boolean matches(PatientRecord record, String needle, String digits) {
+        if (record.getPhone() != null
+                && record.getPhone().replaceAll("\\D", "").contains(digits)) {
+            return true;
+        }
+        return contains(record.getName(), needle)
+                || contains(record.getPhone(), needle)
+                || contains(record.getSymptoms(), needle)
+                || contains(record.getDiagnosis(), needle);
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    /** Whether a larger limit could return more rows for the current keyword. */
+    public boolean hasMore() {
+        return keyword != null && truncated;
+    }
+
+    public boolean isActive() {
+        return keyword != null;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /** The shown rows were edited; keep paging state but stop refining from stale copies. */
+    public void discardResults() {
+        results = null;
+    }
+
+    public void reset() {
+        keyword = null;
+        limit = 0;
+        truncated = false;
+        substring = false;
+        results = null;
+    }
+}
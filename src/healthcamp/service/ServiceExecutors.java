@@ -0,0 +1,66 @@
+package healthcamp.service;
+
+import javafx.application.Platform;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors shared by the service layer: database work runs on virtual
+ * threads, password hashing on a small fixed pool so a burst of logins
+ * cannot use every core, and {@link #fx()} hands results back to the JavaFX
+ * application thread.
+ */
+public final class ServiceExecutors {
+
+    private static final ExecutorService DATABASE = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("db-", 0).factory());
+
+    private static final int HASHING_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final ExecutorService HASHING = createHashingPool();
+
+    private static final Executor FX = command -> {
+        if (Platform.isFxApplicationThread()) {
+            command.run();
+        } else {
+            Platform.runLater(command);
+        }
+    };
+
+    private ServiceExecutors() {}
+
+    private static ExecutorService createHashingPool() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(HASHING_THREADS, HASHING_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(256), runnable -> {
+                    Thread thread = new Thread(runnable, "hash-" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public static ExecutorService database() {
+        return DATABASE;
+    }
+
+    /** CPU-bound password hashing; rejects work once 256 requests are queued. */
+    public static ExecutorService hashing() {
+        return HASHING;
+    }
+
+    public static Executor fx() {
+        return FX;
+    }
+
+    public static void shutdown() {
+        DATABASE.shutdownNow();
+        HASHING.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package healthcamp.service;
+
+import healthcamp.database.UserDAO;
+import healthcamp.model.User;
+import healthcamp.security.PasswordHasher;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous front for {@link UserDAO}. Password hashing and verification
+ * run on {@link ServiceExecutors#hashing()}, never on a database thread.
+ */
+public class UserService {
+
+    public enum SignupResult { CREATED, USERNAME_TAKEN, EMAIL_TAKEN, FAILED }
+
+    public enum LoginStatus { SUCCESS, USER_NOT_FOUND, WRONG_PASSWORD }
+
+    private final UserDAO userDAO;
+
+    public UserService() {
+        this(new UserDAO());
+    }
+
+    public UserService(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    public CompletableFuture<User> findByUsernameOrEmail(String usernameOrEmail) {
+        return CompletableFuture.supplyAsync(
+                () -> userDAO.findByUsernameOrEmail(usernameOrEmail), ServiceExecutors.database());
+    }
+
+    /**
+     * Looks the user up and verifies the password. A password stored in
+     * plaintext or with too few iterations is rehashed in the background
+     * after a successful login.
+     */
+    public CompletableFuture<LoginResult> login(String usernameOrEmail, String password) {
+        return findByUsernameOrEmail(usernameOrEmail).thenApplyAsync(user -> {
+            if (user == null) {
+                return new LoginResult(LoginStatus.USER_NOT_FOUND, null);
+            }
+            PasswordHasher hasher = PasswordHasher.getDefault();
+            String stored = user.getPassword();
+            if (!hasher.verify(password, stored)) {
+                return new LoginResult(LoginStatus.WRONG_PASSWORD, null);
+            }
+            if (hasher.needsRehash(stored)) {
+                String upgraded = hasher.hash(password);
+                CompletableFuture.runAsync(
+                        () -> userDAO.updatePassword(user.getId(), upgraded), ServiceExecutors.database());
+            }
+            return new LoginResult(LoginStatus.SUCCESS, user);
+        }, ServiceExecutors.hashing());
+    }
+
+    /** The password on {@code user} is plaintext; it is hashed before the row is written. */
+    public CompletableFuture<SignupResult> signup(User user) {
+        return CompletableFuture.supplyAsync(
+                () -> userDAO.checkAvailability(user.getUsername(), user.getEmail()), ServiceExecutors.database())
+            .thenApplyAsync(availability -> {
+                if (availability != null && !availability.isUsernameTaken() && !availability.isEmailTaken()) {
+                    user.setPassword(PasswordHasher.getDefault().hash(user.getPassword()));
+                }
+                return availability;
+            }, ServiceExecutors.hashing())
+            .thenApplyAsync(availability -> {
+                if (availability == null) {
+                    return SignupResult.FAILED;
+                }
+                if (availability.isUsernameTaken()) {
+                    return SignupResult.USERNAME_TAKEN;
+                }
+                if (availability.isEmailTaken()) {
+                    return SignupResult.EMAIL_TAKEN;
+                }
+                return userDAO.createUser(user) ? SignupResult.CREATED : SignupResult.FAILED;
+            }, ServiceExecutors.database());
+    }
+
+    /** Calibrates the password hasher in the background so the first login does not pay for it. */
+    public CompletableFuture<Void> warmUp() {
+        return CompletableFuture.runAsync(PasswordHasher::getDefault, ServiceExecutors.hashing());
+    }
+
+    public CompletableFuture<List<User>> getAllUsers() {
+        return CompletableFuture.supplyAsync(userDAO::getAllUsers, ServiceExecutors.database());
+    }
+
+    public static final class LoginResult {
+        private final LoginStatus status;
+        private final User user;
+
+        LoginResult(LoginStatus status, User user) {
+            this.status = status;
+            this.user = user;
+        }
+
+        public LoginStatus getStatus() { return status; }
+        public User getUser() { return user; }
+    }
+}
@@ -0,0 +1,225 @@
+package healthcamp.ui;
+
+import healthcamp.analytics.AggregationEngine;
+import healthcamp.analytics.PatientSnapshot;
+import healthcamp.service.LatestRequest;
+import healthcamp.service.ServiceExecutors;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.RowConstraints;
+
+/**
+ * Visits over time, top diagnoses, age histogram and gender split for one
+ * user. The user's visits are loaded once into a {@link PatientSnapshot};
+ * every filter change re-aggregates that snapshot in memory.
+ */
+public final class DashboardView extends BorderPane {
+
+    private static final String ALL = "All";
+    private static final int TOP_DIAGNOSES = 10;
+
+    private final int userId;
+    private final LatestRequest<AggregationEngine.Result> aggregation = new LatestRequest<>();
+    private PatientSnapshot snapshot;
+
+    private final DatePicker fromPicker = new DatePicker();
+    private final DatePicker toPicker = new DatePicker();
+    private final ComboBox<String> genderBox = new ComboBox<>();
+    private final ComboBox<String> diagnosisBox = new ComboBox<>();
+    private final Spinner<Integer> minAge = new Spinner<>(0, 150, 0);
+    private final Spinner<Integer> maxAge = new Spinner<>(0, 150, 150);
+    private final Label statusLabel = new Label("Loading...");
+
+    private final LineChart<String, Number> visitsChart = new LineChart<>(new CategoryAxis(), new NumberAxis());
+    private final BarChart<String, Number> diagnosisChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
+    private final BarChart<String, Number> ageChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
+    private final PieChart genderChart = new PieChart();
+
+    public DashboardView(int userId) {
+        this.userId = userId;
+        setPadding(new Insets(10));
+        setTop(createFilterBar());
+        setCenter(createCharts());
+        setBottom(statusLabel);
+        BorderPane.setMargin(statusLabel, new Insets(8, 0, 0, 0));
+        reload();
+    }
+
+    private HBox createFilterBar() {
+        genderBox.getItems().add(ALL);
+        genderBox.setValue(ALL);
+        diagnosisBox.getItems().add(ALL);
+        diagnosisBox.setValue(ALL);
+        diagnosisBox.setPrefWidth(180);
+        minAge.setPrefWidth(75);
+        maxAge.setPrefWidth(75);
+
+        fromPicker.valueProperty().addListener((obs, o, n) -> refresh());
+        toPicker.valueProperty().addListener((obs, o, n) -> refresh());
+        genderBox.valueProperty().addListener((obs, o, n) -> refresh());
+        diagnosisBox.valueProperty().addListener((obs, o, n) -> refresh());
+        minAge.valueProperty().addListener((obs, o, n) -> refresh());
+        maxAge.valueProperty().addListener((obs, o, n) -> refresh());
+
+        Button reloadBtn = new Button("Reload");
+        reloadBtn.setOnAction(e -> reload());
+
+        HBox bar = new HBox(8,
+            new Label("From:"), fromPicker, new Label("To:"), toPicker,
+            new Label("Gender:"), genderBox, new Label("Diagnosis:"), diagnosisBox,
+            new Label("Age:"), minAge, new Label("-"), maxAge, reloadBtn);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(0, 0, 10, 0));
+        return bar;
+    }
+
+    private GridPane createCharts() {
+        visitsChart.setTitle("Visits");
+        visitsChart.setCreateSymbols(false);
+        visitsChart.setLegendVisible(false);
+        visitsChart.setAnimated(false);
+        diagnosisChart.setTitle("Top Diagnoses");
+        diagnosisChart.setLegendVisible(false);
+        diagnosisChart.setAnimated(false);
+        ageChart.setTitle("Age Distribution");
+        ageChart.setLegendVisible(false);
+        ageChart.setAnimated(false);
+        genderChart.setTitle("Gender");
+        genderChart.setAnimated(false);
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.add(visitsChart, 0, 0);
+        grid.add(diagnosisChart, 1, 0);
+        grid.add(ageChart, 0, 1);
+        grid.add(genderChart, 1, 1);
+        for (int i = 0; i < 2; i++) {
+            ColumnConstraints column = new ColumnConstraints();
+            column.setPercentWidth(50);
+            column.setHgrow(Priority.ALWAYS);
+            grid.getColumnConstraints().add(column);
+            RowConstraints row = new RowConstraints();
+            row.setPercentHeight(50);
+            row.setVgrow(Priority.ALWAYS);
+            grid.getRowConstraints().add(row);
+        }
+        return grid;
+    }
+
+    /** Reloads the snapshot from the database, then re-aggregates. */
+    private void reload() {
+        statusLabel.setText("Loading patient data...");
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                PatientSnapshot loaded = PatientSnapshot.load(userId);
+                List<String> diagnoses = new ArrayList<>(AggregationEngine.aggregate(loaded, AggregationEngine.Filter.all())
+                        .getTopDiagnoses(Integer.MAX_VALUE).keySet());
+                return Map.entry(loaded, diagnoses);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, ServiceExecutors.database()).whenCompleteAsync((loaded, error) -> {
+            if (error != null) {
+                statusLabel.setText("Could not load patient data: " + error.getCause().getMessage());
+                return;
+            }
+            snapshot = loaded.getKey();
+            String gender = genderBox.getValue();
+            String diagnosis = diagnosisBox.getValue();
+            genderBox.getItems().setAll(ALL);
+            genderBox.getItems().addAll(snapshot.getGenders().values());
+            genderBox.setValue(genderBox.getItems().contains(gender) ? gender : ALL);
+            diagnosisBox.getItems().setAll(ALL);
+            diagnosisBox.getItems().addAll(loaded.getValue());
+            diagnosisBox.setValue(diagnosisBox.getItems().contains(diagnosis) ? diagnosis : ALL);
+            refresh();
+        }, ServiceExecutors.fx());
+    }
+
+    private void refresh() {
+        PatientSnapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        AggregationEngine.Filter filter = new AggregationEngine.Filter(
+            fromPicker.getValue(), toPicker.getValue(),
+            ALL.equals(genderBox.getValue()) ? null : genderBox.getValue(),
+            ALL.equals(diagnosisBox.getValue()) ? null : diagnosisBox.getValue(),
+            minAge.getValue(), maxAge.getValue());
+        aggregation.submit(() -> CompletableFuture.supplyAsync(() -> AggregationEngine.aggregate(current, filter)),
+            this::show,
+            error -> statusLabel.setText("Aggregation failed: " + error.getMessage()));
+    }
+
+    private void show(AggregationEngine.Result result) {
+        XYChart.Series<String, Number> visits = new XYChart.Series<>();
+        coarsen(result.getDailyVisits()).forEach((label, count) -> visits.getData().add(new XYChart.Data<>(label, count)));
+        visitsChart.getData().setAll(Collections.singletonList(visits));
+
+        XYChart.Series<String, Number> diagnoses = new XYChart.Series<>();
+        result.getTopDiagnoses(TOP_DIAGNOSES).forEach((name, count) -> diagnoses.getData().add(new XYChart.Data<>(name, count)));
+        diagnosisChart.getData().setAll(Collections.singletonList(diagnoses));
+
+        XYChart.Series<String, Number> ages = new XYChart.Series<>();
+        int[] histogram = result.getAgeHistogram();
+        for (int bin = 0; bin < histogram.length; bin++) {
+            ages.getData().add(new XYChart.Data<>(AggregationEngine.Result.ageBinLabel(bin), histogram[bin]));
+        }
+        ageChart.getData().setAll(Collections.singletonList(ages));
+
+        genderChart.setData(FXCollections.observableArrayList());
+        result.getGenderSplit().forEach((gender, count) ->
+            genderChart.getData().add(new PieChart.Data(gender + " (" + count + ")", count)));
+
+        statusLabel.setText(String.format("%,d of %,d visits matched, aggregated in %.1f ms",
+                result.getMatched(), snapshot.size(), result.getElapsedNanos() / 1e6));
+    }
+
+    /** Long ranges are plotted per week or per month so the chart stays readable. */
+    private static Map<String, Integer> coarsen(Map<LocalDate, Integer> daily) {
+        int days = daily.size();
+        Map<String, Integer> points = new LinkedHashMap<>();
+        for (Map.Entry<LocalDate, Integer> day : daily.entrySet()) {
+            LocalDate date = day.getKey();
+            String label;
+            if (days > 2 * 366) {
+                label = date.getYear() + "-" + String.format("%02d", date.getMonthValue());
+            } else if (days > 120) {
+                label = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toString();
+            } else {
+                label = date.toString();
+            }
+            points.merge(label, day.getValue(), Integer::sum);
+        }
+        return points;
+    }
+}
@@ -0,0 +1,89 @@
+package healthcamp.ui;
+
+import healthcamp.database.CachingPatientDAO;
+import healthcamp.database.DatabaseManager;
+import healthcamp.database.UserCache;
+import healthcamp.database.UserDAO;
+import healthcamp.metrics.DaoMetrics;
+import healthcamp.metrics.LatencyHistogram;
+import java.util.List;
+import java.util.function.Function;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.BorderPane;
+import javafx.util.Duration;
+
+/**
+ * Live view of {@link DaoMetrics}: calls, errors, latency percentiles, rows
+ * and bytes fetched and connection wait per DAO operation, plus the pool
+ * and cache counters. Refreshes every second until {@link #stop()}.
+ */
+public final class DiagnosticsView extends BorderPane {
+
+    private final ObservableList<DaoMetrics.Operation> operations = FXCollections.observableArrayList();
+    private final TableView<DaoMetrics.Operation> table = new TableView<>(operations);
+    private final Label poolLabel = new Label();
+    private final Timeline refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+
+    public DiagnosticsView() {
+        setPadding(new Insets(10));
+        table.getColumns().add(column("Operation", DaoMetrics.Operation::getName, 170));
+        table.getColumns().add(column("Calls", op -> op.getLatency().getCount(), 70));
+        table.getColumns().add(column("Errors", DaoMetrics.Operation::getErrors, 60));
+        table.getColumns().add(column("p50 ms", op -> millis(op.getLatency(), 50), 70));
+        table.getColumns().add(column("p99 ms", op -> millis(op.getLatency(), 99), 70));
+        table.getColumns().add(column("Max ms", op -> millis(op.getLatency(), 100), 70));
+        table.getColumns().add(column("Rows", DaoMetrics.Operation::getRows, 80));
+        table.getColumns().add(column("KB", op -> op.getBytes() / 1024, 70));
+        table.getColumns().add(column("Conn wait p99 ms", op -> millis(op.getConnectionAcquire(), 99), 110));
+        table.getColumns().add(column("Last error", DaoMetrics.Operation::getLastError, 320));
+        table.setPlaceholder(new Label("No database calls yet"));
+
+        setCenter(table);
+        setBottom(poolLabel);
+        BorderPane.setMargin(poolLabel, new Insets(8, 0, 0, 0));
+        refresh();
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        refresher.play();
+    }
+
+    public void stop() {
+        refresher.stop();
+    }
+
+    private void refresh() {
+        // operations are only ever added; re-list them when one appears, otherwise just redraw
+        List<DaoMetrics.Operation> current = DaoMetrics.operations();
+        if (current.size() != operations.size()) {
+            operations.setAll(current);
+        }
+        table.refresh();
+        int port = DatabaseManager.getConfig().getInt("metrics.port", 9464);
+        CachingPatientDAO.CacheStats patients = CachingPatientDAO.getCombinedStats();
+        UserCache users = UserDAO.getCache();
+        poolLabel.setText("Pool: " + DatabaseManager.getPoolStats()
+                + String.format("%nPatient cache: hits=%d misses=%d evictions=%d    User cache: hits=%d misses=%d evictions=%d",
+                        patients.getHits(), patients.getMisses(), patients.getEvictions(),
+                        users.getHits() + users.getNegativeHits(), users.getMisses(), users.getEvictions())
+                + (port > 0 ? "    Prometheus: http://127.0.0.1:" + port + "/metrics" : ""));
+    }
+
+    private static <T> TableColumn<DaoMetrics.Operation, T> column(String title,
+            Function<DaoMetrics.Operation, T> getter, double width) {
+        TableColumn<DaoMetrics.Operation, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(getter.apply(cell.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    private static String millis(LatencyHistogram histogram, double percentile) {
+        return histogram.getCount() == 0 ? "" : String.format("%.2f", histogram.getValueAtPercentile(percentile) / 1e6);
+    }
+}
@@ -1,22 +1,25 @@
 package healthcamp.ui;
 
-import healthcamp.database.UserDAO;
 import healthcamp.model.User;
+import healthcamp.service.ServiceExecutors;
+import healthcamp.service.UserService;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 public class LoginSignupView extends VBox {
     
-    private UserDAO userDAO = new UserDAO();
+    private UserService userService = new UserService();
     private Consumer<User> onLoginSuccess;
     
     public LoginSignupView(Consumer<User> onLoginSuccess) {
         this.onLoginSuccess = onLoginSuccess;
         setupUI();
+        userService.warmUp();
     }
     
     private void setupUI() {
@@ -76,26 +79,39 @@ public class LoginSignupView extends VBox {
                 return;
             }
             
-            User user = userDAO.findByUsernameOrEmail(usernameOrEmail);
+            loginButton.setDisable(true);
+            messageLabel.setText("Checking...");
+            messageLabel.setStyle("-fx-text-fill: #7f8c8d;");
             
-            if (user == null) {
-                messageLabel.setText("User not found");
-                messageLabel.setStyle("-fx-text-fill: red;");
-                return;
-            }
-            
-            if (!user.getPassword().equals(password)) {
-                messageLabel.setText("Incorrect password");
-                messageLabel.setStyle("-fx-text-fill: red;");
-                return;
-            }
-            
-            messageLabel.setText("Login successful!");
-            messageLabel.setStyle("-fx-text-fill: green;");
-            
-            if (onLoginSuccess != null) {
-                onLoginSuccess.accept(user);
-            }
+            userService.login(usernameOrEmail, password).whenCompleteAsync((result, error) -> {
+                loginButton.setDisable(false);
+                
+                if (error != null) {
+                    messageLabel.setText(error.getCause() instanceof RejectedExecutionException
+                        ? "Server busy, please try again" : "Could not reach the database");
+                    messageLabel.setStyle("-fx-text-fill: red;");
+                    return;
+                }
+                
+                if (result.getStatus() == UserService.LoginStatus.USER_NOT_FOUND) {
+                    messageLabel.setText("User not found");
+                    messageLabel.setStyle("-fx-text-fill: red;");
+                    return;
+                }
+                
+                if (result.getStatus() == UserService.LoginStatus.WRONG_PASSWORD) {
+                    messageLabel.setText("Incorrect password");
+                    messageLabel.setStyle("-fx-text-fill: red;");
+                    return;
+                }
+                
+                messageLabel.setText("Login successful!");
+                messageLabel.setStyle("-fx-text-fill: green;");
+                
+                if (onLoginSuccess != null) {
+                    onLoginSuccess.accept(result.getUser());
+                }
+            }, ServiceExecutors.fx());
         });
         
         form.getChildren().addAll(infoLabel, usernameOrEmailField, passwordField, messageLabel, loginButton);
@@ -169,30 +185,39 @@ public class LoginSignupView extends VBox {
                 return;
             }
             
-            if (userDAO.isUsernameTaken(username)) {
-                messageLabel.setText("Username already taken");
-                messageLabel.setStyle("-fx-text-fill: red;");
-                return;
-            }
-            
-            if (userDAO.isEmailTaken(email)) {
-                messageLabel.setText("Email already registered");
-                messageLabel.setStyle("-fx-text-fill: red;");
-                return;
-            }
+            signupButton.setDisable(true);
+            messageLabel.setText("Creating account...");
+            messageLabel.setStyle("-fx-text-fill: #7f8c8d;");
             
             User newUser = new User(username, email, password);
-            if (userDAO.createUser(newUser)) {
-                messageLabel.setText("Account created! Please login.");
-                messageLabel.setStyle("-fx-text-fill: green;");
-                usernameField.clear();
-                emailField.clear();
-                passwordField.clear();
-                confirmPasswordField.clear();
-            } else {
-                messageLabel.setText("Failed to create account. Please try again.");
-                messageLabel.setStyle("-fx-text-fill: red;");
-            }
+            userService.signup(newUser).whenCompleteAsync((result, error) -> {
+                signupButton.setDisable(false);
+                
+                if (error != null) {
+                    result = UserService.SignupResult.FAILED;
+                }
+                switch (result) {
+                    case USERNAME_TAKEN:
+                        messageLabel.setText("Username already taken");
+                        messageLabel.setStyle("-fx-text-fill: red;");
+                        break;
+                    case EMAIL_TAKEN:
+                        messageLabel.setText("Email already registered");
+                        messageLabel.setStyle("-fx-text-fill: red;");
+                        break;
+                    case CREATED:
+                        messageLabel.setText("Account created! Please login.");
+                        messageLabel.setStyle("-fx-text-fill: green;");
+                        usernameField.clear();
+                        emailField.clear();
+                        passwordField.clear();
+                        confirmPasswordField.clear();
+                        break;
+                    default:
+                        messageLabel.setText("Failed to create account. Please try again.");
+                        messageLabel.setStyle("-fx-text-fill: red;");
+                }
+            }, ServiceExecutors.fx());
         });
         
         form.getChildren().addAll(infoLabel, usernameField, emailField, passwordField, 
@@ -0,0 +1,439 @@
+package healthcamp.ui;
+
+import healthcamp.database.PatientSort;
+import healthcamp.model.PatientRecord;
+import healthcamp.service.PatientService;
+import healthcamp.service.ServiceExecutors;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Virtual item list for the patient table. Its size is the user's patient
+ * count, but rows are only held for a few windows of {@link #WINDOW_SIZE}
+ * around the viewport. An unloaded row reads as {@code null}, which the
+ * table draws as a blank row, and queues a fetch of its window; when the
+ * window arrives its rows are reported as updated so the table redraws them.
+ * Updates rather than replacements keep the selection on its index.
+ * <p>
+ * Windows are read with index seeks, never an offset: the last row of every
+ * full window seen is kept as a boundary, and a window is read from the
+ * boundary just before it. Jumping past rows no boundary covers finds one
+ * with {@link PatientService#seekPosition} from the nearest boundary below.
+ * <p>
+ * Order is decided by the database: {@link #setSort} followed by
+ * {@link #reload()} re-reads the rows in view in the new order. Writes made
+ * here are applied in place by {@link #added}, {@link #updated} and
+ * {@link #removed}. Used from the JavaFX application thread only.
+ */
+public class PatientTableSource extends ObservableListBase<PatientRecord> {
+
+    public static final int WINDOW_SIZE = 200;
+    private static final int MAX_WINDOWS = 8;
+    private static final int MAX_PENDING = 3;
+
+    private final PatientService service;
+    private final int userId;
+    private final Map<Integer, List<PatientRecord>> windows = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> pending = new HashSet<>();
+    // last row of each full window seen, kept after the window itself is dropped
+    private final TreeMap<Integer, PatientRecord> boundaries = new TreeMap<>();
+    private PatientSort sort = PatientSort.DEFAULT;
+    private int size;
+    private int generation;
+    private int firstVisible;
+    private int lastVisible;
+
+    public PatientTableSource(PatientService service, int userId) {
+        this.service = service;
+        this.userId = userId;
+    }
+
+    @Override
+    public PatientRecord get(int index) {
+        Objects.checkIndex(index, size);
+        int window = index / WINDOW_SIZE;
+        List<PatientRecord> rows = windows.get(window);
+        if (rows == null) {
+            request(window);
+            return null;
+        }
+        int offset = index - window * WINDOW_SIZE;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Searches loaded rows only; the inherited scan would page in the whole table. */
+    @Override
+    public int indexOf(Object o) {
+        for (Map.Entry<Integer, List<PatientRecord>> entry : windows.entrySet()) {
+            int at = entry.getValue().indexOf(o);
+            if (at >= 0) {
+                return entry.getKey() * WINDOW_SIZE + at;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    public PatientSort getSort() {
+        return sort;
+    }
+
+    /** Returns whether the order changed; the caller then reloads. */
+    public boolean setSort(PatientSort sort) {
+        if (this.sort.equals(sort)) {
+            return false;
+        }
+        this.sort = sort;
+        // boundaries are positions in the old order
+        boundaries.clear();
+        return true;
+    }
+
+    /**
+     * Called as the table scrolls. Loads the windows in view and, half a
+     * window ahead in the direction of travel, the one after them, so rows
+     * are usually in memory before they scroll into sight.
+     */
+    public void setViewport(int first, int last) {
+        if (size == 0 || last < first) {
+            return;
+        }
+        int direction = Integer.compare(first, firstVisible);
+        firstVisible = Math.min(first, size - 1);
+        lastVisible = Math.min(last, size - 1);
+        for (int window = firstVisible / WINDOW_SIZE; window <= lastVisible / WINDOW_SIZE; window++) {
+            request(window);
+        }
+        if (direction >= 0) {
+            request(Math.min(size - 1, lastVisible + WINDOW_SIZE / 2) / WINDOW_SIZE);
+        } else {
+            request(Math.max(0, firstVisible - WINDOW_SIZE / 2) / WINDOW_SIZE);
+        }
+    }
+
+    /**
+     * Re-reads the count and the windows in view, then swaps them in at once
+     * so the table does not flash blank rows. Loaded windows outside the view
+     * and all boundaries are dropped, since other desks may have shifted the
+     * rows. Completes on the FX thread with the new size.
+     */
+    public CompletableFuture<Integer> reload() {
+        int requested = ++generation;
+        pending.clear();
+        int firstWindow = firstVisible / WINDOW_SIZE;
+        int lastWindow = Math.max(firstVisible, lastVisible) / WINDOW_SIZE;
+        CompletableFuture<Integer> count = service.count(userId);
+        CompletableFuture<PatientRecord> start = firstWindow == 0
+            ? CompletableFuture.completedFuture(null)
+            : service.seekPosition(userId, sort, null, firstWindow * WINDOW_SIZE);
+        CompletableFuture<List<List<PatientRecord>>> loads = start.thenCompose(after -> firstWindow > 0 && after == null
+            ? CompletableFuture.completedFuture(List.of())
+            : loadWindows(after, lastWindow - firstWindow + 1, new ArrayList<>()));
+        return CompletableFuture.allOf(count, loads).thenApplyAsync(ignored -> {
+            if (requested != generation) {
+                return size;
+            }
+            windows.clear();
+            boundaries.clear();
+            if (start.join() != null) {
+                boundaries.put(firstWindow - 1, start.join());
+            }
+            List<List<PatientRecord>> loaded = loads.join();
+            for (int i = 0; i < loaded.size(); i++) {
+                if (!loaded.get(i).isEmpty()) {
+                    keep(firstWindow + i, loaded.get(i));
+                }
+            }
+            int oldSize = size;
+            size = count.join();
+            beginChange();
+            if (size < oldSize) {
+                nextRemove(size, Collections.<PatientRecord>nCopies(oldSize - size, null));
+            } else if (size > oldSize) {
+                nextAdd(oldSize, size);
+            }
+            int updateTo = Math.min(Math.min(oldSize, size), (lastWindow + 1) * WINDOW_SIZE);
+            for (int i = firstWindow * WINDOW_SIZE; i < updateTo; i++) {
+                nextUpdate(i);
+            }
+            endChange();
+            return size;
+        }, ServiceExecutors.fx());
+    }
+
+    /** Reads {@code count} consecutive windows, each seeking from the last row of the one before. */
+    private CompletableFuture<List<List<PatientRecord>>> loadWindows(PatientRecord after, int count,
+                                                                     List<List<PatientRecord>> loaded) {
+        if (loaded.size() == count) {
+            return CompletableFuture.completedFuture(loaded);
+        }
+        return service.loadAfter(userId, sort, after, WINDOW_SIZE).thenCompose(rows -> {
+            loaded.add(rows);
+            return rows.size() < WINDOW_SIZE
+                ? CompletableFuture.completedFuture(loaded)
+                : loadWindows(rows.get(rows.size() - 1), count, loaded);
+        });
+    }
+
+    /**
+     * Fetches one window unless it is loaded, already on its way, or too many
+     * fetches are outstanding; a window skipped here is asked for again the
+     * next time the table draws one of its rows. The window is read after the
+     * boundary of the one before it, which is first looked up from the
+     * nearest known boundary if the rows in between were never loaded.
+     */
+    private void request(int window) {
+        if (window < 0 || window * WINDOW_SIZE >= size || windows.containsKey(window)
+                || pending.contains(window) || pending.size() >= MAX_PENDING) {
+            return;
+        }
+        pending.add(window);
+        int requested = generation;
+        CompletableFuture<PatientRecord> start = window == 0 || boundaries.containsKey(window - 1)
+            ? CompletableFuture.completedFuture(boundaries.get(window - 1))
+            : seekToEndOf(window - 1);
+        CompletableFuture<List<PatientRecord>> load = start.thenCompose(after -> window > 0 && after == null
+            ? CompletableFuture.completedFuture(List.of())
+            : service.loadAfter(userId, sort, after, WINDOW_SIZE));
+        load.whenCompleteAsync((rows, error) -> {
+            if (requested != generation) {
+                return;
+            }
+            pending.remove(window);
+            // the DAO reports a failed read as empty; leave the window to be retried
+            if (error == null && !rows.isEmpty()) {
+                if (window > 0) {
+                    boundaries.put(window - 1, start.join());
+                }
+                store(window, rows);
+            }
+        }, Platform::runLater); // never inline: get() may be called during a layout pass
+    }
+
+    /** Finds the last row of {@code window} from the nearest boundary before it, or from the start. */
+    private CompletableFuture<PatientRecord> seekToEndOf(int window) {
+        Map.Entry<Integer, PatientRecord> nearest = boundaries.lowerEntry(window);
+        int from = nearest == null ? -1 : nearest.getKey();
+        return service.seekPosition(userId, sort, nearest == null ? null : nearest.getValue(),
+            (window - from) * WINDOW_SIZE);
+    }
+
+    private void store(int window, List<PatientRecord> rows) {
+        keep(window, rows);
+        Iterator<Integer> eldest = windows.keySet().iterator();
+        while (windows.size() > MAX_WINDOWS && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+        int from = window * WINDOW_SIZE;
+        int to = Math.min(size, from + rows.size());
+        beginChange();
+        for (int i = from; i < to; i++) {
+            nextUpdate(i);
+        }
+        endChange();
+    }
+
+    private void keep(int window, List<PatientRecord> rows) {
+        windows.put(window, new ArrayList<>(rows));
+        if (rows.size() == WINDOW_SIZE) {
+            boundaries.put(window, rows.get(WINDOW_SIZE - 1));
+        }
+    }
+
+    /**
+     * Shows a patient just added at its place in the current order. Rows after
+     * it move down one within the loaded windows that follow on from each
+     * other; windows past a gap no longer line up and are dropped, to be
+     * fetched again when in view. Returns the row's index, or -1 if it falls
+     * between loaded windows and will arrive with its own.
+     */
+    public int added(PatientRecord record) {
+        int at = insertionPoint(record);
+        boolean known = at >= 0;
+        if (!known) {
+            at = -at - 1;
+        }
+        int window = at / WINDOW_SIZE;
+        List<PatientRecord> rows = windows.get(window);
+        size++;
+        if (known && rows != null) {
+            rows.add(at - window * WINDOW_SIZE, record);
+            // carry each window's overflow into the next loaded one
+            int last = window;
+            while (rows.size() > WINDOW_SIZE) {
+                PatientRecord carried = rows.remove(WINDOW_SIZE);
+                rows = windows.get(last + 1);
+                if (rows == null) {
+                    break;
+                }
+                rows.add(0, carried);
+                last++;
+            }
+            realign(window, last);
+        } else {
+            realign(window, window - 1);
+        }
+        beginChange();
+        nextAdd(at, at + 1);
+        endChange();
+        return known ? at : -1;
+    }
+
+    /**
+     * Replaces a loaded row with its edited version, moving it if its sort key
+     * changed. Returns its new index, or -1 if it is not loaded.
+     */
+    public int updated(PatientRecord record) {
+        int at = indexOfId(record.getId());
+        if (at < 0) {
+            return -1;
+        }
+        PatientRecord before = loadedRow(at - 1);
+        PatientRecord after = loadedRow(at + 1);
+        Comparator<PatientRecord> order = order();
+        // a neighbour that is not loaded cannot confirm the row stays put
+        if ((at == 0 || before != null && order.compare(before, record) < 0)
+                && (at == size - 1 || after != null && order.compare(record, after) < 0)) {
+            int window = at / WINDOW_SIZE;
+            int offset = at - window * WINDOW_SIZE;
+            PatientRecord previous = windows.get(window).set(offset, record);
+            if (offset == WINDOW_SIZE - 1) {
+                boundaries.put(window, record);
+            }
+            beginChange();
+            nextSet(at, previous);
+            endChange();
+            return at;
+        }
+        removeAt(at);
+        return added(record);
+    }
+
+    /** Removes a deleted patient's row. Returns false if it was not loaded; the caller then reloads. */
+    public boolean removed(int patientId) {
+        int at = indexOfId(patientId);
+        if (at < 0) {
+            return false;
+        }
+        removeAt(at);
+        return true;
+    }
+
+    private void removeAt(int at) {
+        int window = at / WINDOW_SIZE;
+        List<PatientRecord> rows = windows.get(window);
+        PatientRecord removed = rows.remove(at - window * WINDOW_SIZE);
+        size--;
+        // pull the next loaded window's first row up to fill the gap
+        int last = window;
+        List<PatientRecord> next;
+        while ((next = windows.get(last + 1)) != null) {
+            rows.add(next.remove(0));
+            rows = next;
+            last++;
+        }
+        // a window left one short only lines up if the table ends there
+        if (last * WINDOW_SIZE + rows.size() < size) {
+            windows.remove(last);
+            last--;
+        }
+        realign(window, last);
+        beginChange();
+        nextRemove(at, removed);
+        endChange();
+    }
+
+    /**
+     * After rows moved within windows {@code first} to {@code last}, drops the
+     * loaded windows beyond them, which are now off by one, and rebuilds the
+     * boundaries from {@code first} on.
+     */
+    private void realign(int first, int last) {
+        windows.keySet().removeIf(window -> window > last);
+        boundaries.tailMap(first, true).clear();
+        for (int window = first; window <= last; window++) {
+            List<PatientRecord> rows = windows.get(window);
+            if (rows != null && rows.size() == WINDOW_SIZE) {
+                boundaries.put(window, rows.get(WINDOW_SIZE - 1));
+            }
+        }
+    }
+
+    /**
+     * Index {@code record} belongs at among the loaded rows, or
+     * {@code -(start + 1)} when it falls in the unloaded gap beginning at
+     * {@code start}, where its exact place is unknown.
+     */
+    private int insertionPoint(PatientRecord record) {
+        Comparator<PatientRecord> order = order();
+        int gapStart = 0;
+        boolean afterLoaded = true;
+        for (int window : new TreeSet<>(windows.keySet())) {
+            boolean contiguous = window * WINDOW_SIZE == gapStart && afterLoaded;
+            List<PatientRecord> rows = windows.get(window);
+            int at = Collections.binarySearch(rows, record, order);
+            at = at >= 0 ? at : -at - 1;
+            if (at < rows.size()) {
+                return at > 0 || contiguous ? window * WINDOW_SIZE + at : -(gapStart + 1);
+            }
+            gapStart = window * WINDOW_SIZE + rows.size();
+            afterLoaded = rows.size() == WINDOW_SIZE;
+        }
+        return gapStart == size ? size : -(gapStart + 1);
+    }
+
+    /** Journaled rows not yet synced are listed first, as {@code OfflinePatientDAO} returns them. */
+    private Comparator<PatientRecord> order() {
+        return Comparator.comparing((PatientRecord row) -> row.getId() > 0).thenComparing(sort.comparator());
+    }
+
+    /** The row at {@code index} if its window is loaded, otherwise null. */
+    private PatientRecord loadedRow(int index) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        List<PatientRecord> rows = windows.get(index / WINDOW_SIZE);
+        int offset = index % WINDOW_SIZE;
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    private int indexOfId(int patientId) {
+        for (Map.Entry<Integer, List<PatientRecord>> entry : windows.entrySet()) {
+            List<PatientRecord> rows = entry.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).getId() == patientId) {
+                    return entry.getKey() * WINDOW_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+}
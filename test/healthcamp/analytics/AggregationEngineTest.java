@@ -0,0 +1,110 @@
+package healthcamp.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class AggregationEngineTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+
+    private static PatientSnapshot sample() {
+        return new PatientSnapshot.Builder()
+                .add(MONDAY.toEpochDay(), 4, "Female", "Viral fever")
+                .add(MONDAY.toEpochDay(), 9, "Male", "Viral fever")
+                .add(MONDAY.plusDays(2).toEpochDay(), 10, "Female", " Viral fever ")
+                .add(MONDAY.plusDays(2).toEpochDay(), 95, "Female", "Hypertension")
+                .add(MONDAY.plusDays(3).toEpochDay(), 150, null, "  ")
+                .build();
+    }
+
+    @Test
+    void countsEveryDayInRangeIncludingEmptyOnes() {
+        AggregationEngine.Result result = AggregationEngine.aggregate(sample(), AggregationEngine.Filter.all());
+        assertEquals(5, result.getMatched());
+        Map<LocalDate, Integer> expected = new LinkedHashMap<>();
+        expected.put(MONDAY, 2);
+        expected.put(MONDAY.plusDays(1), 0);
+        expected.put(MONDAY.plusDays(2), 2);
+        expected.put(MONDAY.plusDays(3), 1);
+        assertEquals(expected, result.getDailyVisits());
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(result.getDailyVisits().keySet()));
+    }
+
+    @Test
+    void binsAgesByDecadeWithAnOpenLastBand() {
+        int[] bins = AggregationEngine.aggregate(sample(), AggregationEngine.Filter.all()).getAgeHistogram();
+        int[] expected = new int[AggregationEngine.AGE_BINS];
+        expected[0] = 2;
+        expected[1] = 1;
+        expected[9] = 2;
+        assertArrayEquals(expected, bins);
+        assertEquals("0-9", AggregationEngine.Result.ageBinLabel(0));
+        assertEquals("90+", AggregationEngine.Result.ageBinLabel(9));
+    }
+
+    @Test
+    void labelsBlankValuesAndTrimsTheRest() {
+        AggregationEngine.Result result = AggregationEngine.aggregate(sample(), AggregationEngine.Filter.all());
+        Map<String, Integer> diagnoses = result.getTopDiagnoses(10);
+        assertEquals("Viral fever", diagnoses.keySet().iterator().next());
+        assertEquals(Map.of("Viral fever", 3, "Hypertension", 1, PatientSnapshot.NONE, 1), diagnoses);
+        assertEquals(Map.of("Female", 3, "Male", 1, PatientSnapshot.NONE, 1), result.getGenderSplit());
+        assertEquals(Map.of("Viral fever", 3), result.getTopDiagnoses(1));
+    }
+
+    @Test
+    void appliesEveryFilterCriterion() {
+        PatientSnapshot snapshot = sample();
+        assertEquals(2, AggregationEngine.aggregate(snapshot,
+                new AggregationEngine.Filter(MONDAY.plusDays(1), null, "Female", null, 0, Integer.MAX_VALUE))
+                .getMatched());
+        assertEquals(1, AggregationEngine.aggregate(snapshot,
+                new AggregationEngine.Filter(null, null, "Female", "Viral fever", 5, 20)).getMatched());
+
+        AggregationEngine.Result narrowed = AggregationEngine.aggregate(snapshot,
+                new AggregationEngine.Filter(MONDAY.plusDays(2), MONDAY.plusDays(2), null, null, 0, Integer.MAX_VALUE));
+        assertEquals(Map.of(MONDAY.plusDays(2), 2), narrowed.getDailyVisits());
+    }
+
+    @Test
+    void unknownValuesAndEmptyRangesMatchNothing() {
+        PatientSnapshot snapshot = sample();
+        assertEquals(0, AggregationEngine.aggregate(snapshot,
+                new AggregationEngine.Filter(null, null, "Other", null, 0, Integer.MAX_VALUE)).getMatched());
+        AggregationEngine.Result reversed = AggregationEngine.aggregate(snapshot,
+                new AggregationEngine.Filter(MONDAY.plusDays(3), MONDAY, null, null, 0, Integer.MAX_VALUE));
+        assertEquals(0, reversed.getMatched());
+        assertTrue(reversed.getDailyVisits().isEmpty());
+        assertEquals(0, AggregationEngine.aggregate(new PatientSnapshot.Builder().build(),
+                AggregationEngine.Filter.all()).getMatched());
+    }
+
+    @Test
+    void parallelTotalsMatchASequentialCount() {
+        PatientSnapshot.Builder builder = new PatientSnapshot.Builder();
+        int[] perDiagnosis = new int[7];
+        int females = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String gender = i % 3 == 0 ? "Female" : "Male";
+            builder.add(MONDAY.toEpochDay() + i % 60, i % 101, gender, "D" + i % 7);
+            perDiagnosis[i % 7]++;
+            if (gender.equals("Female")) {
+                females++;
+            }
+        }
+        AggregationEngine.Result result = AggregationEngine.aggregate(builder.build(), AggregationEngine.Filter.all());
+        assertEquals(100_000, result.getMatched());
+        assertEquals(females, result.getGenderSplit().get("Female"));
+        for (int d = 0; d < 7; d++) {
+            assertEquals(perDiagnosis[d], result.getTopDiagnoses(7).get("D" + d));
+        }
+        assertEquals(100_000, result.getDailyVisits().values().stream().mapToInt(Integer::intValue).sum());
+    }
+}
@@ -0,0 +1,57 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import healthcamp.model.PatientRecord;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CachingPatientDAOTest {
+
+    private CachingPatientDAO cache;
+    private int userId;
+
+    @BeforeEach
+    void seed() {
+        // room for one two-row window and a count, too little for a column store of the list
+        cache = new CachingPatientDAO(3, 60_000);
+        userId = TestDatabase.newUser();
+        LocalDate today = LocalDate.now();
+        cache.addPatient(TestDatabase.patient("Devi", 30, today), userId);
+        cache.addPatient(TestDatabase.patient("Arjun", 41, today), userId);
+    }
+
+    @AfterEach
+    void close() {
+        cache.close();
+    }
+
+    @Test
+    void cachedWindowsAreCopies() {
+        List<PatientRecord> first = cache.getPatientsAfter(userId, PatientSort.DEFAULT, null, 10);
+        String name = first.get(0).getName();
+        first.get(0).setName("edited in place");
+        long misses = cache.getStats().getMisses();
+
+        List<PatientRecord> second = cache.getPatientsAfter(userId, PatientSort.DEFAULT, null, 10);
+        assertEquals(misses, cache.getStats().getMisses(), "the second read is served from the cache");
+        assertEquals(name, second.get(0).getName());
+        assertNotSame(first.get(0), second.get(0));
+    }
+
+    @Test
+    void cachedSeekPositionsAreCopies() {
+        PatientRecord first = cache.findSeekPosition(userId, PatientSort.DEFAULT, null, 1);
+        LocalDate visitDate = first.getVisitDate();
+        first.setVisitDate(visitDate.minusYears(1));
+
+        PatientRecord second = cache.findSeekPosition(userId, PatientSort.DEFAULT, null, 1);
+        assertNotSame(first, second);
+        assertEquals(first.getId(), second.getId());
+        assertEquals(visitDate, second.getVisitDate());
+    }
+}
@@ -0,0 +1,70 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void openPool() throws Exception {
+        // one connection, so every borrow gets the same physical connection back
+        pool = new ConnectionPool("jdbc:h2:mem:pool-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                new Properties(), 1, 1000, 60_000, 8);
+        try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE visits (id INT PRIMARY KEY)");
+            stmt.execute("INSERT INTO visits VALUES (1), (2), (3)");
+        }
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void cachesStatementsWhoseFetchSizeWasSet() throws Exception {
+        int defaultFetchSize;
+        try (Connection conn = pool.borrow();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM visits")) {
+            defaultFetchSize = pstmt.getFetchSize();
+            pstmt.setFetchSize(1000);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // drain
+                }
+            }
+        }
+        try (Connection conn = pool.borrow();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM visits")) {
+            assertEquals(defaultFetchSize, pstmt.getFetchSize());
+        }
+        assertEquals(1, pool.getStats().getStatementHits());
+    }
+
+    @Test
+    void restoresReadOnlyAndIsolationOnRelease() throws Exception {
+        int defaultIsolation;
+        try (Connection conn = pool.borrow()) {
+            defaultIsolation = conn.getTransactionIsolation();
+            conn.setReadOnly(true);
+            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        }
+        try (Connection conn = pool.borrow()) {
+            assertFalse(conn.isReadOnly());
+            assertEquals(defaultIsolation, conn.getTransactionIsolation());
+        }
+        assertEquals(1, pool.getStats().getCreated());
+    }
+}
@@ -0,0 +1,73 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainRecords() throws IOException {
+        try (CsvReader csv = reader("name,age\nAsha,34\n")) {
+            assertEquals(List.of("name", "age"), csv.next());
+            assertEquals(List.of("Asha", "34"), csv.next());
+            assertNull(csv.next());
+        }
+    }
+
+    @Test
+    void unquotesCommasDoubledQuotesAndLineBreaks() throws IOException {
+        try (CsvReader csv = reader("\"O'Neil, \"\"Jo\"\"\",\"cough\nfever\",\"\"\n")) {
+            assertEquals(List.of("O'Neil, \"Jo\"", "cough\nfever", ""), csv.next());
+            assertNull(csv.next());
+        }
+    }
+
+    @Test
+    void keepsEmptyFieldsAndALastRecordWithoutNewline() throws IOException {
+        try (CsvReader csv = reader("a,,c\n,\nlast,row")) {
+            assertEquals(List.of("a", "", "c"), csv.next());
+            assertEquals(List.of("", ""), csv.next());
+            assertEquals(List.of("last", "row"), csv.next());
+            assertNull(csv.next());
+        }
+    }
+
+    @Test
+    void toleratesCrlf() throws IOException {
+        try (CsvReader csv = reader("a,b\r\nc,d\r\n")) {
+            assertEquals(List.of("a", "b"), csv.next());
+            assertEquals(List.of("c", "d"), csv.next());
+            assertNull(csv.next());
+        }
+    }
+
+    @Test
+    void reportsTheLineEachRecordStartsOn() throws IOException {
+        try (CsvReader csv = reader("header\n\"two\nlines\"\nafter\n")) {
+            csv.next();
+            assertEquals(1, csv.getRecordLine());
+            csv.next();
+            assertEquals(2, csv.getRecordLine());
+            assertEquals(List.of("after"), csv.next());
+            assertEquals(4, csv.getRecordLine());
+        }
+    }
+
+    @Test
+    void readsRecordsSpanningTheBufferBoundary() throws IOException {
+        String longField = "x".repeat(40_000);
+        try (CsvReader csv = reader("\"" + longField + "\"\"\",y\n")) {
+            assertEquals(List.of(longField + "\"", "y"), csv.next());
+            assertNull(csv.next());
+        }
+    }
+
+    private static CsvReader reader(String text) {
+        return new CsvReader(new StringReader(text));
+    }
+}
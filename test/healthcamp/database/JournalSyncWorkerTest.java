@@ -0,0 +1,85 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import healthcamp.model.PatientRecord;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalSyncWorkerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void syncsInBatchesAndSetsRejectedEntriesAside() throws Exception {
+        int userId = TestDatabase.newUser();
+        Path deadLetter = dir.resolve("patients.rejected");
+        try (PatientJournal journal = new PatientJournal(dir.resolve("patients.journal"), 64 * 1024, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                // VARCHAR(100): the sixth name is rejected by the database
+                String name = i == 5 ? "X".repeat(150) : "Synced " + i;
+                journal.append(userId, TestDatabase.patient(name, 30, DAY));
+            }
+            String rejectedKey = journal.nextBatch(10, 1).get(5).getKey();
+
+            runUntilSynced(journal, deadLetter);
+
+            PatientDAO patients = new PatientDAO();
+            List<String> names = patients.getAllPatients(userId).stream().map(PatientRecord::getName)
+                    .sorted().collect(Collectors.toList());
+            assertEquals(List.of("Synced 0", "Synced 1", "Synced 2", "Synced 3", "Synced 4",
+                    "Synced 6", "Synced 7", "Synced 8", "Synced 9"), names);
+            assertEquals(9, patients.countPatients(userId));
+
+            String rejected = new String(Files.readAllBytes(deadLetter), StandardCharsets.ISO_8859_1);
+            assertTrue(rejected.contains(rejectedKey), "the rejected entry is kept in the dead-letter file");
+            assertTrue(rejected.contains("X".repeat(150)));
+        }
+    }
+
+    @Test
+    void entriesAppliedBeforeACrashAreNotInsertedTwice() throws Exception {
+        int userId = TestDatabase.newUser();
+        try (PatientJournal journal = new PatientJournal(dir.resolve("patients.journal"), 64 * 1024, 1000)) {
+            journal.append(userId, TestDatabase.patient("Already there", 30, DAY));
+            journal.append(userId, TestDatabase.patient("New", 30, DAY));
+            PatientJournal.Entry applied = journal.nextBatch(1, 1).get(0);
+
+            // the row and its key committed, but the journal never heard back
+            PatientRecord row = new PatientDAO().addPatient(applied.getPatient(), userId);
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                         "INSERT INTO patient_write_keys (write_key, patient_id) VALUES (?, ?)")) {
+                pstmt.setString(1, applied.getKey());
+                pstmt.setInt(2, row.getId());
+                pstmt.executeUpdate();
+            }
+
+            runUntilSynced(journal, dir.resolve("patients.rejected"));
+            assertEquals(2, new PatientDAO().getAllPatients(userId).size());
+        }
+    }
+
+    private static void runUntilSynced(PatientJournal journal, Path deadLetter) throws InterruptedException {
+        JournalSyncWorker worker = new JournalSyncWorker(journal, deadLetter, 4, 10, 100);
+        worker.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (journal.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(worker.stop(5_000), "worker stops once idle");
+        assertEquals(0, journal.size(), "journal drained");
+    }
+}
@@ -0,0 +1,114 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import healthcamp.model.PatientRecord;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PatientExporterTest {
+
+    private static final PatientDAO DAO = new PatientDAO();
+    private static final LocalDate VISIT = LocalDate.of(2024, 3, 9);
+
+    private static int userId;
+    private static PatientRecord plain;
+    private static PatientRecord awkward;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void seed() {
+        userId = TestDatabase.newUser();
+        plain = DAO.addPatient(TestDatabase.patient("Asha", 34, VISIT), userId);
+        PatientRecord patient = TestDatabase.patient("O'Neil, \"Jo\"", 8, VISIT);
+        patient.setSymptoms("cough\nfever, 3 days\tand \\ chills");
+        patient.setTreatment(null);
+        awkward = DAO.addPatient(patient, userId);
+    }
+
+    @Test
+    void csvQuotesFieldsSoTheyReadBackUnchanged() throws Exception {
+        Path target = dir.resolve("patients.csv");
+        PatientExporter.ExportResult result = new PatientExporter(PatientExporter.Format.CSV)
+                .setUserId(userId)
+                .export(target);
+        assertEquals(2, result.getRows());
+        assertEquals(Files.size(target), result.getBytes());
+
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(target, StandardCharsets.UTF_8))) {
+            assertEquals(List.of("id", "user_id", "name", "age", "gender", "phone", "symptoms", "diagnosis",
+                    "treatment", "visit_date"), csv.next());
+            assertRow(plain, csv.next());
+            assertRow(awkward, csv.next());
+            assertNull(csv.next());
+        }
+    }
+
+    @Test
+    void ndjsonWritesOneEscapedObjectPerLine() throws Exception {
+        Path target = dir.resolve("patients.ndjson");
+        new PatientExporter(PatientExporter.Format.NDJSON).setUserId(userId).export(target);
+
+        List<String> lines = Files.readAllLines(target, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"id\":" + plain.getId() + ",\"user_id\":" + userId
+                + ",\"name\":\"Asha\",\"age\":34,"), lines.get(0));
+        String line = lines.get(1);
+        assertTrue(line.contains("\"name\":\"O'Neil, \\\"Jo\\\"\""), line);
+        assertTrue(line.contains("\"symptoms\":\"cough\\nfever, 3 days\\tand \\\\ chills\""), line);
+        assertTrue(line.contains("\"treatment\":null"), line);
+        assertTrue(line.endsWith("\"visit_date\":\"2024-03-09\"}"), line);
+    }
+
+    @Test
+    void gzipHoldsTheSameBytes() throws Exception {
+        Path plainFile = dir.resolve("patients.csv");
+        Path gzipFile = dir.resolve("patients.csv.gz");
+        new PatientExporter(PatientExporter.Format.CSV).setUserId(userId).export(plainFile);
+        new PatientExporter(PatientExporter.Format.CSV).setUserId(userId).setGzip(true).export(gzipFile);
+
+        try (Reader in = new InputStreamReader(new GZIPInputStream(Files.newInputStream(gzipFile)),
+                StandardCharsets.UTF_8)) {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[4096];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                text.append(buffer, 0, n);
+            }
+            assertEquals(Files.readString(plainFile, StandardCharsets.UTF_8), text.toString());
+        }
+        assertFalse(Files.exists(dir.resolve("patients.csv.gz.part")));
+    }
+
+    @Test
+    void dateRangeLimitsTheRows() throws Exception {
+        Path target = dir.resolve("none.csv");
+        PatientExporter.ExportResult result = new PatientExporter(PatientExporter.Format.CSV)
+                .setUserId(userId)
+                .setDateRange(VISIT.plusDays(1), null)
+                .export(target);
+        assertEquals(0, result.getRows());
+        assertEquals(1, Files.readAllLines(target).size());
+    }
+
+    private static void assertRow(PatientRecord expected, List<String> row) {
+        assertEquals(List.of(String.valueOf(expected.getId()), String.valueOf(userId), expected.getName(),
+                String.valueOf(expected.getAge()), expected.getGender(), expected.getPhone(),
+                expected.getSymptoms(), expected.getDiagnosis(),
+                expected.getTreatment() == null ? "" : expected.getTreatment(),
+                expected.getVisitDate().toString()), row);
+    }
+}
@@ -0,0 +1,105 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import healthcamp.model.PatientRecord;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PatientImporterTest {
+
+    private static final PatientDAO DAO = new PatientDAO();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void importsWhatTheExporterWrote() throws Exception {
+        int from = TestDatabase.newUser();
+        LocalDate visit = LocalDate.of(2024, 3, 9);
+        DAO.addPatient(TestDatabase.patient("Asha", 34, visit), from);
+        PatientRecord awkward = TestDatabase.patient("O'Neil, \"Jo\"", 8, visit.minusDays(1));
+        awkward.setSymptoms("cough\nfever, 3 days\tand \\ chills");
+        awkward.setTreatment(null);
+        DAO.addPatient(awkward, from);
+        for (int i = 0; i < 25; i++) {
+            DAO.addPatient(TestDatabase.patient("Patient " + i, i, visit.minusDays(i)), from);
+        }
+
+        for (boolean gzip : new boolean[] {false, true}) {
+            Path file = dir.resolve(gzip ? "patients.csv.gz" : "patients.csv");
+            new PatientExporter(PatientExporter.Format.CSV).setUserId(from).setGzip(gzip).export(file);
+
+            int to = TestDatabase.newUser();
+            PatientImporter.ImportResult result = new PatientImporter(to)
+                    .setBatchSize(4)
+                    .setCommitSize(10)
+                    .importFile(file);
+
+            assertEquals(27, result.getRowsRead());
+            assertEquals(27, result.getImported());
+            assertEquals(0, result.getFailed());
+            assertEquals(describe(DAO.getAllPatients(from)), describe(DAO.getAllPatients(to)));
+        }
+    }
+
+    @Test
+    void reportsBadRowsByLineAndImportsTheRest() throws Exception {
+        int userId = TestDatabase.newUser();
+        Path file = dir.resolve("mixed.csv");
+        Files.writeString(file, String.join("\n",
+                "\uFEFFName,Age,Symptoms,Visit_Date",
+                "Asha,34,\"cough",
+                "and fever\",2024-03-09",
+                "Ravi,old,,2024-03-09",
+                "",
+                ",40,,",
+                "Meera,200,,",
+                "Kiran,5,,09/03/2024",
+                "Devi,61,,"), StandardCharsets.UTF_8);
+
+        PatientImporter.ImportResult result = new PatientImporter(userId).setBatchSize(2).importFile(file);
+
+        assertEquals(6, result.getRowsRead());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getFailed());
+        List<Long> lines = new ArrayList<>();
+        for (PatientImporter.RowError error : result.getErrors()) {
+            lines.add(error.getLine());
+        }
+        assertEquals(List.of(4L, 6L, 7L, 8L), lines);
+
+        List<PatientRecord> imported = DAO.getAllPatients(userId);
+        imported.sort(Comparator.comparing(PatientRecord::getName));
+        assertEquals("cough\nand fever", imported.get(0).getSymptoms());
+        assertEquals(LocalDate.now(), imported.get(1).getVisitDate());
+    }
+
+    @Test
+    void rejectsAHeaderWithoutNameAndAge() throws IOException {
+        Path file = dir.resolve("no-age.csv");
+        Files.writeString(file, "name,phone\nAsha,9876543210\n", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> new PatientImporter(TestDatabase.newUser()).importFile(file));
+    }
+
+    /** Every exported field but the ids, in a stable order. */
+    private static List<String> describe(List<PatientRecord> patients) {
+        List<String> rows = new ArrayList<>();
+        for (PatientRecord p : patients) {
+            rows.add(String.join("|", p.getName(), String.valueOf(p.getAge()), p.getGender(), p.getPhone(),
+                    p.getSymptoms(), p.getDiagnosis(), String.valueOf(p.getTreatment()),
+                    String.valueOf(p.getVisitDate())));
+        }
+        rows.sort(null);
+        return rows;
+    }
+}
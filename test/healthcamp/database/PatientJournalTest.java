@@ -0,0 +1,146 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import healthcamp.model.PatientRecord;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PatientJournalTest {
+
+    private static final int CAPACITY = 64 * 1024;
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsGetNegativeIdsAndAreReplayedInOrder() throws Exception {
+        try (PatientJournal journal = open()) {
+            PatientRecord first = TestDatabase.patient("Asha", 31, DAY);
+            PatientRecord second = TestDatabase.patient("Ravi", 42, DAY);
+            assertTrue(journal.append(7, first));
+            assertTrue(journal.append(8, second));
+            assertEquals(-1, first.getId());
+            assertEquals(-2, second.getId());
+
+            List<PatientJournal.Entry> batch = journal.nextBatch(10, 1);
+            assertEquals(2, batch.size());
+            assertEquals(7, batch.get(0).getUserId());
+            assertEquals("Asha", batch.get(0).getPatient().getName());
+            assertEquals(8, batch.get(1).getUserId());
+            assertEquals(1, journal.pending(7).size());
+        }
+    }
+
+    @Test
+    void unsyncedEntriesSurviveAReopen() throws Exception {
+        try (PatientJournal journal = open()) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(1, TestDatabase.patient("Patient " + i, 20 + i, DAY));
+            }
+            journal.markSynced(journal.nextBatch(2, 1));
+        }
+        try (PatientJournal journal = open()) {
+            List<PatientJournal.Entry> entries = journal.nextBatch(10, 1);
+            assertEquals(List.of("Patient 2", "Patient 3", "Patient 4"),
+                    entries.stream().map(entry -> entry.getPatient().getName()).toList());
+            PatientRecord replayed = entries.get(0).getPatient();
+            assertEquals(22, replayed.getAge());
+            assertEquals(DAY, replayed.getVisitDate());
+            assertEquals("Viral fever", replayed.getDiagnosis());
+        }
+    }
+
+    @Test
+    void keysAreKeptAcrossReopenSoReplaysAreDetected() throws Exception {
+        String key;
+        try (PatientJournal journal = open()) {
+            journal.append(1, TestDatabase.patient("Asha", 31, DAY));
+            key = journal.nextBatch(1, 1).get(0).getKey();
+        }
+        try (PatientJournal journal = open()) {
+            assertEquals(key, journal.nextBatch(1, 1).get(0).getKey());
+        }
+    }
+
+    @Test
+    void aTornRecordEndsTheLog() throws Exception {
+        try (PatientJournal journal = open()) {
+            journal.append(1, TestDatabase.patient("Kept", 30, DAY));
+            journal.append(1, TestDatabase.patient("Torn", 30, DAY));
+        }
+        // flip a byte in the second record's payload so its CRC no longer matches
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("patients.journal").toFile(), "rw")) {
+            int firstLength = readInt(file, 16);
+            long secondPayload = 16 + 8 + firstLength + 8;
+            file.seek(secondPayload + 10);
+            int b = file.read();
+            file.seek(secondPayload + 10);
+            file.write(b ^ 0xff);
+        }
+        try (PatientJournal journal = open()) {
+            List<PatientJournal.Entry> entries = journal.nextBatch(10, 1);
+            assertEquals(1, entries.size());
+            assertEquals("Kept", entries.get(0).getPatient().getName());
+            // the torn record is overwritten by the next append
+            journal.append(1, TestDatabase.patient("After", 30, DAY));
+            assertEquals(2, journal.size());
+        }
+    }
+
+    @Test
+    void refusesAppendsWhenFullOfUnsyncedEntriesAndWrapsOnceSynced() throws Exception {
+        try (PatientJournal journal = new PatientJournal(dir.resolve("small.journal"), 1024, 1000)) {
+            int appended = 0;
+            while (journal.append(1, TestDatabase.patient("Patient " + appended, 30, DAY))) {
+                appended++;
+            }
+            assertTrue(appended > 1);
+            assertEquals(appended, journal.size());
+
+            journal.markSynced(journal.nextBatch(appended, 1));
+            assertEquals(0, journal.size());
+            assertTrue(journal.append(1, TestDatabase.patient("Wrapped", 30, DAY)));
+            assertEquals("Wrapped", journal.nextBatch(1, 1).get(0).getPatient().getName());
+        }
+    }
+
+    @Test
+    void closedJournalRejectsAppends() throws Exception {
+        PatientJournal journal = open();
+        journal.close();
+        assertThrows(IOException.class, () -> journal.append(1, TestDatabase.patient("Late", 30, DAY)));
+    }
+
+    @Test
+    void onlyTheOldestEntriesAreMarkedSynced() throws Exception {
+        try (PatientJournal journal = open()) {
+            journal.append(1, TestDatabase.patient("First", 30, DAY));
+            journal.append(1, TestDatabase.patient("Second", 30, DAY));
+            List<PatientJournal.Entry> entries = journal.nextBatch(2, 1);
+            journal.markSynced(List.of(entries.get(1)));
+            assertEquals(2, journal.size());
+            journal.markSynced(entries);
+            assertEquals(0, journal.size());
+            assertFalse(journal.nextBatch(1, 1).iterator().hasNext());
+        }
+    }
+
+    private PatientJournal open() throws IOException {
+        return new PatientJournal(dir.resolve("patients.journal"), CAPACITY, 1000);
+    }
+
+    private static int readInt(RandomAccessFile file, long position) throws IOException {
+        file.seek(position);
+        return file.readInt();
+    }
+}
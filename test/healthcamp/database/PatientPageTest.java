@@ -0,0 +1,87 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import healthcamp.model.PatientRecord;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class PatientPageTest {
+
+    private static final PatientDAO DAO = new PatientDAO();
+    private static int userId;
+    private static List<PatientRecord> all;
+
+    @BeforeAll
+    static void seed() {
+        userId = TestDatabase.newUser();
+        LocalDate today = LocalDate.now();
+        // repeated names, ages and dates so ties are broken by id
+        for (int i = 0; i < 53; i++) {
+            DAO.addPatient(TestDatabase.patient("Patient " + (char) ('a' + i % 7), 20 + i % 5,
+                    today.minusDays(i % 4)), userId);
+        }
+        all = DAO.getAllPatients(userId);
+        assertEquals(53, all.size());
+    }
+
+    @Test
+    void pagesCoverEveryRowOnceInSortOrder() {
+        for (PatientSort.Key key : PatientSort.Key.values()) {
+            for (boolean descending : new boolean[] {true, false}) {
+                PatientSort sort = new PatientSort(key, descending);
+                List<PatientRecord> expected = new ArrayList<>(all);
+                expected.sort(sort.comparator());
+
+                List<Integer> seen = new ArrayList<>();
+                PatientPage.Cursor cursor = null;
+                int pages = 0;
+                do {
+                    PatientPage page = DAO.getPatientsPage(userId, sort, cursor, 10);
+                    page.getItems().forEach(patient -> seen.add(patient.getId()));
+                    cursor = page.getNext();
+                    assertEquals(page.hasMore(), cursor != null);
+                    pages++;
+                } while (cursor != null);
+
+                assertEquals(expected.stream().map(PatientRecord::getId).toList(), seen, sort.toString());
+                assertEquals(6, pages, sort.toString());
+            }
+        }
+    }
+
+    @Test
+    void exactlyFullLastPageHasNoCursor() {
+        PatientPage page = DAO.getPatientsPage(userId, PatientSort.DEFAULT, null, 53);
+        assertEquals(53, page.getItems().size());
+        assertFalse(page.hasMore());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void cursorKeepsOnlyTheSortKey() {
+        PatientPage page = DAO.getPatientsPage(userId, new PatientSort(PatientSort.Key.AGE, false), null, 5);
+        PatientRecord position = page.getNext().getPosition();
+        PatientRecord last = page.getItems().get(4);
+        assertEquals(last.getId(), position.getId());
+        assertEquals(last.getAge(), position.getAge());
+        assertNull(position.getName());
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> DAO.getPatientsPage(userId, PatientSort.DEFAULT, null, 0));
+        PatientPage.Cursor byName = DAO.getPatientsPage(userId,
+                new PatientSort(PatientSort.Key.NAME, true), null, 5).getNext();
+        assertNotNull(byName);
+        assertThrows(IllegalArgumentException.class,
+                () -> DAO.getPatientsPage(userId, PatientSort.DEFAULT, byName, 5));
+    }
+}
@@ -0,0 +1,75 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import healthcamp.model.PatientRecord;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PatientStatsDAOTest {
+
+    private final PatientDAO patients = new PatientDAO();
+    private final PatientStatsDAO stats = new PatientStatsDAO();
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void whitespaceVariantsShareABucketWhicheverPathWroteThem() throws SQLException {
+        int userId = TestDatabase.newUser();
+        for (String diagnosis : new String[] {"Malaria", "Malaria\t", " Malaria\n", "\t", null}) {
+            PatientRecord patient = TestDatabase.patient("Asha", 30, today);
+            patient.setDiagnosis(diagnosis);
+            patients.addPatient(patient, userId);
+        }
+        Map<String, Integer> expected = Map.of("Malaria", 3, "(none)", 2);
+        assertEquals(expected, stats.getBreakdown(userId, PatientStatsDAO.Dimension.DIAGNOSIS, today, today));
+
+        stats.rebuild(userId);
+        assertEquals(expected, stats.getBreakdown(userId, PatientStatsDAO.Dimension.DIAGNOSIS, today, today));
+        assertEquals(Map.of("25-44", 5), stats.getBreakdown(userId, PatientStatsDAO.Dimension.AGE_BAND, today, today));
+    }
+
+    @Test
+    void rowsWrittenOutsideTheAppAreFoundAndRepaired() throws SQLException {
+        int userId = TestDatabase.newUser();
+        patients.addPatient(TestDatabase.patient("Ravi", 40, today), userId);
+        patients.addPatient(TestDatabase.patient("Meena", 8, today.minusDays(1)), userId);
+        assertTrue(stats.findDrift(userId).isEmpty());
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO patients (user_id, name, age, visit_date) VALUES (?, 'Typed in by hand', 50, ?)")) {
+            insert.setInt(1, userId);
+            insert.setDate(2, Date.valueOf(today));
+            insert.executeUpdate();
+        }
+        assertEquals(2, patients.countPatients(userId));
+        assertEquals(Map.of(today, 1), stats.findDrift(userId));
+
+        stats.rebuild(userId);
+        assertTrue(stats.findDrift(userId).isEmpty());
+        assertEquals(3, patients.countPatients(userId));
+        assertEquals(2, patients.getTodayPatientCount(userId));
+    }
+
+    @Test
+    void deletesAndUpdatesMoveVisitsBetweenBuckets() throws SQLException {
+        int userId = TestDatabase.newUser();
+        PatientRecord patient = patients.addPatient(TestDatabase.patient("Kiran", 70, today), userId);
+        patient.setAge(3);
+        patients.updatePatient(patient);
+        assertEquals(Map.of("0-4", 1), stats.getBreakdown(userId, PatientStatsDAO.Dimension.AGE_BAND, today, today));
+        PatientRecord deleted = patients.deletePatient(patient.getId());
+        assertEquals("Kiran", deleted.getName());
+        assertEquals(3, deleted.getAge());
+        assertNull(patients.deletePatient(patient.getId()));
+        assertEquals(0, patients.countPatients(userId));
+        assertTrue(stats.findDrift(userId).isEmpty());
+    }
+}
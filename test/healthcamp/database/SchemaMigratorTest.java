@@ -0,0 +1,98 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SchemaMigratorTest {
+
+    private Connection conn;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:migrator-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void appliesEveryMigrationOnceAndRecordsIt() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(conn, false);
+        assertEquals(SchemaMigrator.MIGRATIONS.size(), migrator.migrate());
+        assertEquals(0, migrator.migrate());
+        assertEquals(SchemaMigrator.MIGRATIONS.size(), queryInt("SELECT COUNT(*) FROM schema_migrations"));
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM information_schema.indexes"
+                + " WHERE table_schema = SCHEMA() AND index_name = 'idx_patients_user_name'"));
+    }
+
+    @Test
+    void mySqlOnlyMigrationsAreRecordedButSkipped() throws SQLException {
+        new SchemaMigrator(conn, false).migrate();
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM schema_migrations WHERE version = 7"));
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM information_schema.indexes"
+                + " WHERE table_schema = SCHEMA() AND index_name = 'ft_patients_text'"));
+    }
+
+    @Test
+    void tablesCreatedBeforeTheMigratorAreAdopted() throws SQLException {
+        execute("CREATE TABLE users (id INT PRIMARY KEY AUTO_INCREMENT, username VARCHAR(50) NOT NULL UNIQUE,"
+                + " email VARCHAR(100) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL)");
+        execute("INSERT INTO users (username, email, password) VALUES ('desk', 'desk@example.com', 'x')");
+        assertEquals(SchemaMigrator.MIGRATIONS.size(), new SchemaMigrator(conn, false).migrate());
+        assertEquals(1, queryInt("SELECT COUNT(*) FROM users"));
+    }
+
+    @Test
+    void changedMigrationStopsStartup() throws SQLException {
+        new SchemaMigrator(conn, false).migrate();
+        execute("UPDATE schema_migrations SET checksum = REPEAT('0', 64) WHERE version = 3");
+        SQLException e = assertThrows(SQLException.class, () -> new SchemaMigrator(conn, false).migrate());
+        assertTrue(e.getMessage().contains("Schema migration 3"), e.getMessage());
+    }
+
+    @Test
+    void unknownMigrationStopsStartup() throws SQLException {
+        new SchemaMigrator(conn, false).migrate();
+        execute("INSERT INTO schema_migrations (version, description, checksum, duration_ms)"
+                + " VALUES (999, 'from a newer release', REPEAT('0', 64), 0)");
+        SQLException e = assertThrows(SQLException.class, () -> new SchemaMigrator(conn, false).migrate());
+        assertTrue(e.getMessage().contains("[999]"), e.getMessage());
+    }
+
+    @Test
+    void checksumIgnoresSurroundingWhitespaceOnly() {
+        SchemaMigrator.Migration a = new SchemaMigrator.Migration(1, "a", false, "CREATE TABLE t (id INT)");
+        SchemaMigrator.Migration b = new SchemaMigrator.Migration(1, "b", false, "\n  CREATE TABLE t (id INT)  \n");
+        SchemaMigrator.Migration c = new SchemaMigrator.Migration(1, "a", false, "CREATE TABLE t (id BIGINT)");
+        assertEquals(a.checksum(), b.checksum());
+        assertNotEquals(a.checksum(), c.checksum());
+    }
+
+    private int queryInt(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
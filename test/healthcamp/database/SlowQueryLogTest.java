@@ -0,0 +1,101 @@
+package healthcamp.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SlowQueryLogTest {
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private Path logFile;
+
+    @BeforeEach
+    void openPool() throws Exception {
+        pool = new ConnectionPool("jdbc:h2:mem:slow-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                new Properties(), 2, 1000, 60_000, 8);
+        try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE visits (id INT PRIMARY KEY, name VARCHAR(40))");
+            stmt.execute("INSERT INTO visits VALUES (1, 'Asha'), (2, 'Ravi')");
+        }
+        logFile = dir.resolve("slow.log");
+        FileHandler file = new FileHandler(logFile.toString());
+        file.setEncoding(StandardCharsets.UTF_8.name());
+        file.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + System.lineSeparator();
+            }
+        });
+        // a zero threshold makes every statement slow
+        pool.setSlowQueryLog(new SlowQueryLog(0, true, file));
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void capturesThePlanOnceAndRedactsParameters() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try (Connection conn = pool.borrow();
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM visits WHERE name = ?")) {
+                pstmt.setString(1, "Asha");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    assertTrue(rs.next());
+                }
+            }
+        }
+        pool.close();
+
+        String log = Files.readString(logFile);
+        assertEquals(1, count(log, "plan:"), log);
+        assertTrue(log.contains("SELECT name FROM visits WHERE name = ?"), log);
+        assertFalse(log.contains("Asha"), log);
+        assertFalse(log.contains("EXPLAIN"), "the EXPLAIN itself is not logged:\n" + log);
+    }
+
+    @Test
+    void leavesTheCallersConnectionUsable() throws Exception {
+        try (Connection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement("UPDATE visits SET name = ? WHERE id = ?")) {
+                pstmt.setString(1, "Meera");
+                pstmt.setInt(2, 1);
+                assertEquals(1, pstmt.executeUpdate());
+            }
+            conn.commit();
+        }
+        pool.close();
+
+        assertTrue(Files.readString(logFile).contains("plan:"));
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
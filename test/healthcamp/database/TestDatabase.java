@@ -0,0 +1,42 @@
+package healthcamp.database;
+
+import healthcamp.model.PatientRecord;
+import healthcamp.model.User;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The in-memory H2 database surefire points the embedded profile at. It
+ * lives as long as the test JVM, so each test works under a user of its own.
+ */
+final class TestDatabase {
+
+    private static boolean initialized;
+
+    private TestDatabase() {}
+
+    static synchronized void initialize() {
+        if (!initialized) {
+            DatabaseManager.initializeDatabase();
+            initialized = true;
+        }
+    }
+
+    /** A new user with no patients; returns its id. */
+    static int newUser() {
+        initialize();
+        String name = "test-" + UUID.randomUUID().toString().substring(0, 8);
+        UserDAO users = new UserDAO();
+        if (!users.createUser(new User(name, name + "@example.com", "not-a-real-hash"))) {
+            throw new IllegalStateException("could not create " + name);
+        }
+        return users.findByUsernameOrEmail(name).getId();
+    }
+
+    static PatientRecord patient(String name, int age, LocalDate visitDate) {
+        PatientRecord patient = new PatientRecord(name, age, "Female", "9876543210", "fever", "Viral fever",
+                "Rest and fluids", null);
+        patient.setVisitDate(visitDate);
+        return patient;
+    }
+}
@@ -0,0 +1,113 @@
+package healthcamp.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesGetABucketEach() {
+        for (long value = 0; value < 128; value++) {
+            assertEquals(value, LatencyHistogram.indexOf(value));
+            assertEquals(value, LatencyHistogram.highestEquivalentValue((int) value));
+        }
+    }
+
+    @Test
+    void bucketsAreContiguousAndCoverTheirValues() {
+        int previous = LatencyHistogram.indexOf(127);
+        for (long value = 128; value < 1 << 20; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index == previous || index == previous + 1, "gap at " + value);
+            long highest = LatencyHistogram.highestEquivalentValue(index);
+            assertTrue(highest >= value, "bucket " + index + " ends below " + value);
+            assertTrue(highest - value <= value / 64, "bucket " + index + " too wide at " + value);
+            previous = index;
+        }
+    }
+
+    @Test
+    void bucketBoundariesAtPowersOfTwo() {
+        for (int bit = 7; bit < 41; bit++) {
+            long power = 1L << bit;
+            assertEquals(LatencyHistogram.indexOf(power - 1) + 1, LatencyHistogram.indexOf(power), "at 2^" + bit);
+            assertEquals(power - 1, LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(power - 1)));
+        }
+    }
+
+    @Test
+    void percentilesOfAUniformRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(500_500_000, histogram.getTotalNanos());
+        assertWithin(500_000, histogram.getValueAtPercentile(50));
+        assertWithin(990_000, histogram.getValueAtPercentile(99));
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+        assertWithin(1000, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    void percentilesMatchSortedSamples() {
+        SplittableRandom random = new SplittableRandom(42);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextLong(1, 5_000_000_000L);
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+        for (double percentile : new double[] {1, 25, 50, 90, 99, 99.9}) {
+            long exact = samples[(int) Math.ceil(percentile / 100 * samples.length) - 1];
+            assertWithin(exact, histogram.getValueAtPercentile(percentile));
+        }
+    }
+
+    @Test
+    void valuesAreClampedToTheRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(3_600_000_000_000L, histogram.getMaxNanos());
+        assertEquals(3_600_000_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void getAndResetMovesTheCountsAndAddMergesThem() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(200_000);
+        LatencyHistogram interval = histogram.getAndReset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(2, interval.getCount());
+
+        histogram.record(50);
+        histogram.add(interval);
+        assertEquals(3, histogram.getCount());
+        assertEquals(200_000, histogram.getMaxNanos());
+        assertEquals(100, histogram.getValueAtPercentile(50));
+        assertEquals(200_050 + 100, histogram.getTotalNanos());
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    /** Reported values are the top of the sample's bucket: never below it, at most 1/64 above. */
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected / 64,
+                "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,65 @@
+package healthcamp.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PasswordHasherTest {
+
+    // far below a production count, to keep the tests quick
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    @Test
+    void verifiesItsOwnHashes() {
+        String stored = hasher.hash("correct horse");
+        assertTrue(PasswordHasher.isHashed(stored));
+        assertTrue(stored.startsWith("pbkdf2$1000$"), stored);
+        assertTrue(hasher.verify("correct horse", stored));
+        assertFalse(hasher.verify("correct horse ", stored));
+        assertFalse(hasher.verify(null, stored));
+    }
+
+    @Test
+    void saltsEveryHash() {
+        assertNotEquals(hasher.hash("same"), hasher.hash("same"));
+    }
+
+    @Test
+    void verifiesHashesMadeWithOtherIterationCounts() {
+        String stored = new PasswordHasher(500).hash("secret");
+        assertTrue(hasher.verify("secret", stored));
+    }
+
+    @Test
+    void legacyPlaintextVerifiesAndNeedsRehash() {
+        assertTrue(hasher.verify("secret", "secret"));
+        assertFalse(hasher.verify("Secret", "secret"));
+        assertTrue(hasher.needsRehash("secret"));
+        assertTrue(hasher.needsRehash(null));
+    }
+
+    @Test
+    void rehashesOnlyHashesWellBelowTheCurrentCount() {
+        assertFalse(hasher.needsRehash(hasher.hash("secret")));
+        assertFalse(hasher.needsRehash(new PasswordHasher(750).hash("secret")));
+        assertTrue(hasher.needsRehash(new PasswordHasher(749).hash("secret")));
+        assertFalse(hasher.needsRehash(new PasswordHasher(5_000).hash("secret")));
+    }
+
+    @Test
+    void rejectsMalformedHashes() {
+        assertFalse(hasher.verify("secret", "pbkdf2$1000$only-three"));
+        assertFalse(hasher.verify("secret", "pbkdf2$abc$c2FsdA$aGFzaA"));
+        assertFalse(hasher.verify("secret", "pbkdf2$0$c2FsdA$aGFzaA"));
+        assertFalse(hasher.verify("secret", "pbkdf2$1000$not base64!$aGFzaA"));
+        assertTrue(hasher.needsRehash("pbkdf2$abc$c2FsdA$aGFzaA"));
+    }
+
+    @Test
+    void refusesNonPositiveIterationCounts() {
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(0));
+    }
+}
@@ -0,0 +1,67 @@
+package healthcamp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import healthcamp.database.DatabaseManager;
+import healthcamp.database.UserDAO;
+import healthcamp.model.User;
+import healthcamp.security.PasswordHasher;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class UserServiceTest {
+
+    private final UserDAO users = new UserDAO();
+    private final UserService service = new UserService(users);
+
+    @BeforeAll
+    static void initialize() {
+        DatabaseManager.initializeDatabase();
+    }
+
+    @Test
+    void upgradesALegacyPlaintextPasswordAfterLogin() throws Exception {
+        String name = uniqueName();
+        assertTrue(users.createUser(new User(name, name + "@example.com", "legacy-secret")));
+
+        assertEquals(UserService.LoginStatus.WRONG_PASSWORD,
+                service.login(name, "legacy-Secret").get(30, TimeUnit.SECONDS).getStatus());
+        assertEquals(UserService.LoginStatus.SUCCESS,
+                service.login(name, "legacy-secret").get(30, TimeUnit.SECONDS).getStatus());
+
+        // the rehash is written in the background once the login has answered
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String stored = users.findByUsernameOrEmail(name).getPassword();
+        while (!PasswordHasher.isHashed(stored) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            stored = users.findByUsernameOrEmail(name).getPassword();
+        }
+        assertTrue(PasswordHasher.isHashed(stored), stored);
+        assertTrue(PasswordHasher.getDefault().verify("legacy-secret", stored));
+        assertEquals(UserService.LoginStatus.SUCCESS,
+                service.login(name + "@example.com", "legacy-secret").get(30, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    void signupStoresAHashAndRefusesTakenNames() throws Exception {
+        String name = uniqueName();
+        assertEquals(UserService.SignupResult.CREATED,
+                service.signup(new User(name, name + "@example.com", "new-secret")).get(30, TimeUnit.SECONDS));
+        String stored = users.findByUsernameOrEmail(name).getPassword();
+        assertTrue(PasswordHasher.isHashed(stored), stored);
+
+        assertEquals(UserService.SignupResult.USERNAME_TAKEN,
+                service.signup(new User(name, "other-" + name + "@example.com", "x")).get(30, TimeUnit.SECONDS));
+        assertEquals(UserService.SignupResult.EMAIL_TAKEN,
+                service.signup(new User("other-" + name, name + "@example.com", "x")).get(30, TimeUnit.SECONDS));
+        assertEquals(UserService.LoginStatus.USER_NOT_FOUND,
+                service.login("other-" + name, "x").get(30, TimeUnit.SECONDS).getStatus());
+    }
+
+    private static String uniqueName() {
+        return "svc-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}